@@ -0,0 +1,72 @@
+package com.jellypudding.battleLock.benchmarks;
+
+import com.jellypudding.battleLock.managers.CombatTagTable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tag and lookup throughput of the combat tag table with a given number of tagged players
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CombatTagBenchmark {
+
+    private static final long TAG_DURATION = TimeUnit.SECONDS.toNanos(15);
+
+    @Param({"10", "100", "1000", "10000"})
+    public int taggedPlayers;
+
+    private CombatTagTable table;
+    private UUID[] tagged;
+    private UUID[] untagged;
+    private int cursor;
+
+    @Setup
+    public void setup() {
+        table = new CombatTagTable();
+        tagged = new UUID[taggedPlayers];
+        untagged = new UUID[taggedPlayers];
+
+        long now = System.nanoTime();
+        for (int i = 0; i < taggedPlayers; i++) {
+            tagged[i] = UUID.randomUUID();
+            untagged[i] = UUID.randomUUID();
+            table.tag(tagged[i], now, TAG_DURATION);
+        }
+    }
+
+    private int next() {
+        cursor = (cursor + 1) % taggedPlayers;
+        return cursor;
+    }
+
+    @Benchmark
+    public boolean isTaggedHit() {
+        return table.isTagged(tagged[next()], System.nanoTime());
+    }
+
+    @Benchmark
+    public boolean isTaggedMiss() {
+        return table.isTagged(untagged[next()], System.nanoTime());
+    }
+
+    @Benchmark
+    public long refreshTag() {
+        return table.tag(tagged[next()], System.nanoTime(), TAG_DURATION);
+    }
+
+    @Benchmark
+    public long remaining() {
+        return table.remaining(tagged[next()], System.nanoTime());
+    }
+}
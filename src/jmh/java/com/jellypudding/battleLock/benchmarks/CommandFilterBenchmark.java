@@ -0,0 +1,66 @@
+package com.jellypudding.battleLock.benchmarks;
+
+import com.jellypudding.battleLock.util.CommandMatcher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of deciding whether a tagged player's command is allowed, against an allow list
+ * expanded with aliases and namespaced labels the way CommandListener compiles it
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CommandFilterBenchmark {
+
+    private static final List<String> ALLOWED = List.of(
+            "tell", "minecraft:tell", "msg", "minecraft:msg", "w", "minecraft:w", "whisper", "essentials:msg",
+            "r", "reply", "essentials:r", "me", "minecraft:me", "mail", "essentials:mail", "helpop",
+            "report", "ignore", "essentials:ignore", "rules", "discord", "list", "minecraft:list", "ping");
+
+    private static final String[] MESSAGES = {
+            "/msg Notch hello there",
+            "/home base",
+            "/MINECRAFT:MSG Notch hi",
+            "/tpa Steve",
+            "/r ok",
+            "/spawn",
+            "/essentials:ignore Herobrine",
+            "/warp pvp"
+    };
+
+    private CommandMatcher matcher;
+    private int cursor;
+
+    @Setup
+    public void setup() {
+        matcher = CommandMatcher.of(ALLOWED);
+    }
+
+    @Benchmark
+    public boolean compiledMatcher() {
+        cursor = (cursor + 1) & (MESSAGES.length - 1);
+        return matcher.matchesCommand(MESSAGES[cursor]);
+    }
+
+    @Benchmark
+    public boolean splitAndScan() {
+        // The pre-compiled approach: allocate the label and scan the list
+        cursor = (cursor + 1) & (MESSAGES.length - 1);
+        String command = MESSAGES[cursor].substring(1).split(" ")[0].toLowerCase();
+        for (String allowed : ALLOWED) {
+            if (command.equals(allowed)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,47 @@
+package com.jellypudding.battleLock.benchmarks;
+
+import com.jellypudding.battleLock.Metrics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialisation of a typical bStats submission through Metrics.JsonObjectBuilder
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MetricsJsonBenchmark {
+
+    @Benchmark
+    public String buildPayload() {
+        Metrics.JsonObjectBuilder.JsonObject chart = new Metrics.JsonObjectBuilder()
+                .appendField("chartId", "combat_logs")
+                .appendField("data", new Metrics.JsonObjectBuilder().appendField("value", 42).build())
+                .build();
+
+        Metrics.JsonObjectBuilder.JsonObject service = new Metrics.JsonObjectBuilder()
+                .appendField("pluginName", "BattleLock")
+                .appendField("id", 27551)
+                .appendField("customCharts", new Metrics.JsonObjectBuilder.JsonObject[] {chart})
+                .build();
+
+        return new Metrics.JsonObjectBuilder()
+                .appendField("serverUUID", "00000000-0000-0000-0000-000000000000")
+                .appendField("playerAmount", 250)
+                .appendField("onlineMode", 1)
+                .appendField("bukkitVersion", "1.21.10-R0.1-SNAPSHOT")
+                .appendField("javaVersion", "21")
+                .appendField("osName", "Linux")
+                .appendField("coreCount", 16)
+                .appendField("service", service)
+                .appendField("metricsVersion", "3.1.0")
+                .build()
+                .toString();
+    }
+}
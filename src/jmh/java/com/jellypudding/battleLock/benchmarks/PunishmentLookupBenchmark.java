@@ -0,0 +1,104 @@
+package com.jellypudding.battleLock.benchmarks;
+
+import com.jellypudding.battleLock.BattleLock;
+import com.jellypudding.battleLock.managers.DataManager;
+import com.jellypudding.battleLock.storage.JournalPunishmentStore;
+import com.jellypudding.battleLock.storage.PunishmentRecord;
+import org.mockbukkit.mockbukkit.MockBukkit;
+import org.mockbukkit.mockbukkit.ServerMock;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Punishment lookups through DataManager with a given number of stored records.
+ * The plugin runs on a MockBukkit server and loads the records from its journal as it does on startup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PunishmentLookupBenchmark {
+
+    @Param({"1000", "100000"})
+    public int records;
+
+    private DataManager dataManager;
+    private UUID[] killed;
+    private UUID[] innocent;
+    private int cursor;
+
+    @Setup
+    public void setup() throws IOException {
+        ServerMock server = MockBukkit.mock();
+        BattleLock plugin = MockBukkit.load(BattleLock.class);
+
+        // Replace the journal while the plugin is disabled, so enabling it loads the records
+        server.getPluginManager().disablePlugin(plugin);
+        killed = new UUID[records];
+        innocent = new UUID[records];
+        List<PunishmentRecord> batch = new ArrayList<>(records);
+        for (int i = 0; i < records; i++) {
+            killed[i] = UUID.randomUUID();
+            innocent[i] = UUID.randomUUID();
+            batch.add(new PunishmentRecord(killed[i], true, System.currentTimeMillis()));
+        }
+
+        Path journal = plugin.getDataFolder().toPath().resolve("punishments.journal");
+        Files.deleteIfExists(journal);
+        JournalPunishmentStore store = new JournalPunishmentStore(journal, plugin.getLogger());
+        store.loadAll();
+        store.write(batch);
+        store.close();
+
+        server.getPluginManager().enablePlugin(plugin);
+        dataManager = plugin.getDataManager();
+        dataManager.awaitLoad();
+        if (!dataManager.isAvailable()) {
+            throw new IllegalStateException("The punishment records did not load");
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        MockBukkit.unmock();
+    }
+
+    private int next() {
+        cursor = (cursor + 1) % records;
+        return cursor;
+    }
+
+    @Benchmark
+    public boolean wasNpcKilledHit() {
+        return dataManager.wasNpcKilled(killed[next()]);
+    }
+
+    @Benchmark
+    public boolean wasNpcKilledMiss() {
+        return dataManager.wasNpcKilled(innocent[next()]);
+    }
+
+    /**
+     * The lookup a joining player goes through: resolved at pre-login and taken on join
+     */
+    @Benchmark
+    public Boolean prefetchAndTake() {
+        UUID playerId = killed[next()];
+        dataManager.prefetch(playerId);
+        return dataManager.takePrefetched(playerId);
+    }
+}
@@ -0,0 +1,112 @@
+package com.jellypudding.battleLock.benchmarks;
+
+import com.jellypudding.battleLock.storage.JournalPunishmentStore;
+import com.jellypudding.battleLock.storage.PunishmentRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * Journal replay and write-behind batches against large record stores.
+ * Lookups through DataManager are measured by {@link PunishmentLookupBenchmark}.
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PunishmentStoreBenchmark {
+
+    @Param({"1000", "100000"})
+    public int records;
+
+    @Param({"1", "64"})
+    public int batchSize;
+
+    private Path folder;
+    private Path journal;
+    private JournalPunishmentStore appendStore;
+    private long nextPlayer;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        folder = Files.createTempDirectory("battlelock-bench");
+        journal = folder.resolve("punishments.journal");
+
+        List<PunishmentRecord> batch = new ArrayList<>(records);
+        for (int i = 0; i < records; i++) {
+            batch.add(new PunishmentRecord(UUID.randomUUID(), true, System.currentTimeMillis()));
+        }
+
+        JournalPunishmentStore store = new JournalPunishmentStore(journal, Logger.getAnonymousLogger());
+        store.loadAll();
+        store.write(batch);
+        store.close();
+    }
+
+    /**
+     * Start every iteration from the same journal, so the measured appends never grow it past earlier iterations
+     */
+    @Setup(Level.Iteration)
+    public void openAppendStore() throws IOException {
+        Path appendJournal = folder.resolve("append.journal");
+        Files.copy(journal, appendJournal, StandardCopyOption.REPLACE_EXISTING);
+        appendStore = new JournalPunishmentStore(appendJournal, Logger.getAnonymousLogger());
+        appendStore.loadAll();
+    }
+
+    @TearDown(Level.Iteration)
+    public void closeAppendStore() throws IOException {
+        appendStore.close();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(folder)) {
+            for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    /**
+     * Append a batch of new punishments. Every record adds a live player, so the journal never holds
+     * more than twice its live records and compaction stays out of the measurement.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    public long writeBatch() throws IOException {
+        List<PunishmentRecord> batch = new ArrayList<>(batchSize);
+        long killedAt = System.currentTimeMillis();
+        for (int i = 0; i < batchSize; i++) {
+            batch.add(new PunishmentRecord(new UUID(0L, nextPlayer++), true, killedAt));
+        }
+        return appendStore.write(batch);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    public Map<UUID, Long> replayJournal() throws IOException {
+        JournalPunishmentStore store = new JournalPunishmentStore(journal, Logger.getAnonymousLogger());
+        Map<UUID, Long> loaded = store.loadAll();
+        store.close();
+        return loaded;
+    }
+}
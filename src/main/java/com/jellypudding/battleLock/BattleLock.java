@@ -1,30 +1,74 @@
 package com.jellypudding.battleLock;
 
+import com.jellypudding.battleLock.api.CombatStateService;
+import com.jellypudding.battleLock.commands.BattleLockCommand;
+import com.jellypudding.battleLock.config.Settings;
 import com.jellypudding.battleLock.listeners.CombatListener;
 import com.jellypudding.battleLock.listeners.CommandListener;
 import com.jellypudding.battleLock.listeners.PlayerListener;
+import com.jellypudding.battleLock.listeners.WorldListener;
+import com.jellypudding.battleLock.managers.CombatEventStream;
 import com.jellypudding.battleLock.managers.CombatManager;
 import com.jellypudding.battleLock.managers.CombatLogManager;
+import com.jellypudding.battleLock.managers.CombatStateProvider;
+import com.jellypudding.battleLock.managers.CombatTimer;
 import com.jellypudding.battleLock.managers.DataManager;
+import com.jellypudding.battleLock.managers.PermissionCache;
+import com.jellypudding.battleLock.sync.CombatSync;
+import com.jellypudding.battleLock.sync.LoopbackTransport;
+import com.jellypudding.battleLock.sync.PluginMessagingTransport;
+import com.jellypudding.battleLock.sync.SyncTransport;
+import org.bukkit.command.PluginCommand;
+import org.bukkit.plugin.ServicePriority;
 import org.bukkit.plugin.java.JavaPlugin;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public final class BattleLock extends JavaPlugin {
     
+    private volatile Settings settings;
     private CombatManager combatManager;
     private CombatLogManager combatLogManager;
+    private CombatTimer combatTimer;
     private DataManager dataManager;
+    private CombatSync combatSync;
+    private CombatEventStream eventStream;
+    private PermissionCache permissionCache;
 
     @Override
     public void onEnable() {
         saveDefaultConfig();
+        this.settings = loadSettings();
 
+        this.combatSync = new CombatSync(this, createSyncTransport());
+        this.eventStream = new CombatEventStream(this);
+        this.eventStream.start();
+        this.permissionCache = new PermissionCache(this);
         this.dataManager = new DataManager(this);
+        this.dataManager.load();
         this.combatManager = new CombatManager(this);
+        this.combatManager.start();
         this.combatLogManager = new CombatLogManager(this, combatManager, dataManager);
+        this.combatLogManager.start();
+        this.combatTimer = new CombatTimer(this, combatManager);
+        this.combatTimer.start();
+        this.combatSync.start();
 
         getServer().getPluginManager().registerEvents(new CombatListener(this, combatManager), this);
         getServer().getPluginManager().registerEvents(new CommandListener(this, combatManager), this);
         getServer().getPluginManager().registerEvents(new PlayerListener(this, combatManager, combatLogManager), this);
+        getServer().getPluginManager().registerEvents(new WorldListener(combatLogManager), this);
+
+        getServer().getServicesManager().register(CombatStateService.class,
+                new CombatStateProvider(combatManager, combatLogManager, eventStream), this, ServicePriority.Normal);
+
+        PluginCommand command = getCommand("battlelock");
+        if (command != null) {
+            BattleLockCommand executor = new BattleLockCommand(this);
+            command.setExecutor(executor);
+            command.setTabCompleter(executor);
+        }
 
         // Initialise bStats
         int pluginId = 27551;
@@ -35,13 +79,76 @@ public final class BattleLock extends JavaPlugin {
 
     @Override
     public void onDisable() {
+        if (combatSync != null) {
+            combatSync.shutdown();
+        }
+        if (combatTimer != null) {
+            combatTimer.shutdown();
+        }
         if (combatLogManager != null) {
-            combatLogManager.removeAllCombatLogs();
+            combatLogManager.shutdown();
+        }
+        if (combatManager != null) {
+            combatManager.shutdown();
+        }
+        if (eventStream != null) {
+            eventStream.shutdown();
+        }
+        if (dataManager != null) {
+            dataManager.shutdown();
+        }
+        if (permissionCache != null) {
+            permissionCache.clear();
         }
         
         getLogger().info("BattleLock has been disabled.");
     }
     
+    /**
+     * Get the current settings.
+     * The returned snapshot is immutable; read it again to pick up a reload.
+     *
+     * @return The current settings
+     */
+    public Settings getSettings() {
+        return settings;
+    }
+
+    /**
+     * Re-read config.yml and swap in the new settings if every value is valid
+     *
+     * @param problems Receives a description of every invalid value
+     * @return The settings that were replaced, or null if the new config was rejected
+     */
+    public synchronized Settings reloadSettings(List<String> problems) {
+        reloadConfig();
+        Settings loaded = Settings.load(getConfig(), problems);
+        if (!problems.isEmpty()) {
+            return null;
+        }
+
+        Settings previous = settings;
+        this.settings = loaded;
+        return previous;
+    }
+
+    private Settings loadSettings() {
+        List<String> problems = new ArrayList<>();
+        Settings loaded = Settings.load(getConfig(), problems);
+        for (String problem : problems) {
+            getLogger().warning("Invalid setting, using the default instead: " + problem);
+        }
+        return loaded;
+    }
+
+    private SyncTransport createSyncTransport() {
+        return switch (settings.syncTransport()) {
+            case "plugin-messaging" -> new PluginMessagingTransport(this);
+            case "loopback" -> new LoopbackTransport();
+            default -> null;
+        };
+    }
+
     public CombatManager getCombatManager() {
         return combatManager;
     }
@@ -50,7 +157,23 @@ public final class BattleLock extends JavaPlugin {
         return combatLogManager;
     }
     
+    public CombatTimer getCombatTimer() {
+        return combatTimer;
+    }
+    
     public DataManager getDataManager() {
         return dataManager;
     }
+
+    public CombatSync getCombatSync() {
+        return combatSync;
+    }
+
+    public CombatEventStream getEventStream() {
+        return eventStream;
+    }
+
+    public PermissionCache getPermissionCache() {
+        return permissionCache;
+    }
 }
@@ -0,0 +1,55 @@
+package com.jellypudding.battleLock.api;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * An entry of the combat event stream
+ *
+ * @param type What happened
+ * @param playerId The UUID of the player it happened to
+ * @param otherId The opponent for {@link Type#TAG}, the killer for {@link Type#NPC_KILLED}, null otherwise
+ * @param timestamp When it happened
+ */
+public record CombatEvent(Type type, UUID playerId, UUID otherId, Instant timestamp) {
+
+    /**
+     * Create an event that happened now
+     *
+     * @param type What happened
+     * @param playerId The UUID of the player it happened to
+     * @param otherId The UUID of the other player involved, or null
+     * @return The event
+     */
+    public static CombatEvent now(Type type, UUID playerId, UUID otherId) {
+        return new CombatEvent(type, playerId, otherId, Instant.now());
+    }
+
+    public enum Type {
+
+        /**
+         * A player entered combat
+         */
+        TAG,
+
+        /**
+         * A player left combat, because their tag ran out or was removed
+         */
+        UNTAG,
+
+        /**
+         * A player logged out in combat and a combat log NPC was spawned for them
+         */
+        COMBAT_LOG,
+
+        /**
+         * A combat log NPC was killed
+         */
+        NPC_KILLED,
+
+        /**
+         * A player whose combat log NPC was killed came back and lost their items
+         */
+        PUNISHMENT_APPLIED
+    }
+}
@@ -0,0 +1,30 @@
+package com.jellypudding.battleLock.api;
+
+import org.bukkit.Location;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * A combat log NPC at the time the snapshot was taken
+ *
+ * @param playerId The UUID of the player who logged out
+ * @param playerName The name of the player who logged out
+ * @param entityId The UUID of the NPC's entity. A new entity is spawned each time the NPC's chunk loads
+ * @param spawned Whether the NPC's entity is in the world; false while its chunk is unloaded
+ * @param location The last known location of the NPC
+ * @param health The NPC's health
+ * @param despawnAt When the NPC despawns if nobody kills it
+ */
+public record CombatLogNpcSnapshot(UUID playerId, String playerName, UUID entityId, boolean spawned, Location location,
+                                   double health, Instant despawnAt) {
+
+    public CombatLogNpcSnapshot {
+        location = location.clone();
+    }
+
+    @Override
+    public Location location() {
+        return location.clone();
+    }
+}
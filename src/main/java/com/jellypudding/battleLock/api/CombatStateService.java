@@ -0,0 +1,101 @@
+package com.jellypudding.battleLock.api;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Flow;
+
+/**
+ * Read-only view of BattleLock's combat state for other plugins.
+ * <p>
+ * Get it from Bukkit's services manager:
+ * <pre>{@code
+ * CombatStateService combat = Bukkit.getServicesManager().load(CombatStateService.class);
+ * }</pre>
+ * Every method is safe to call from any thread. Single player and entity lookups are constant time;
+ * the methods returning every tagged player or NPC build an immutable snapshot.
+ */
+public interface CombatStateService {
+
+    /**
+     * Check if a player is tagged as being in combat
+     *
+     * @param playerId The UUID of the player
+     * @return True if the player is in combat, false otherwise
+     */
+    boolean isTagged(UUID playerId);
+
+    /**
+     * Get the time left on a player's combat tag
+     *
+     * @param playerId The UUID of the player
+     * @return The time left, or zero if the player is not tagged
+     */
+    Duration getTimeRemaining(UUID playerId);
+
+    /**
+     * Get the players someone has fought during their current combat tag
+     *
+     * @param playerId The UUID of the player
+     * @return The UUIDs of their opponents, empty if they are not tagged
+     */
+    Set<UUID> getOpponents(UUID playerId);
+
+    /**
+     * Get the combat state of a player
+     *
+     * @param playerId The UUID of the player
+     * @return The player's state, or empty if they are not tagged
+     */
+    Optional<TaggedPlayerSnapshot> getTaggedPlayer(UUID playerId);
+
+    /**
+     * Get every tagged player, online or not
+     *
+     * @return An immutable snapshot of the tagged players
+     */
+    List<TaggedPlayerSnapshot> getTaggedPlayers();
+
+    /**
+     * Check if an entity is the body of a combat log NPC
+     *
+     * @param entityId The UUID of the entity
+     * @return True if the entity is a live combat log NPC, false otherwise
+     */
+    boolean isCombatLogNpc(UUID entityId);
+
+    /**
+     * Get the combat log NPC of a player who logged out in combat
+     *
+     * @param playerId The UUID of the player
+     * @return The NPC, or empty if the player has none
+     */
+    Optional<CombatLogNpcSnapshot> getNpc(UUID playerId);
+
+    /**
+     * Get a combat log NPC by the UUID of its entity
+     *
+     * @param entityId The UUID of the entity
+     * @return The NPC, or empty if the entity is not a combat log NPC
+     */
+    Optional<CombatLogNpcSnapshot> getNpcByEntity(UUID entityId);
+
+    /**
+     * Get every live combat log NPC
+     *
+     * @return An immutable snapshot of the NPCs
+     */
+    List<CombatLogNpcSnapshot> getNpcs();
+
+    /**
+     * Get the stream of combat events: tags, untags, combat logs, NPC kills and punishments.
+     * Events are delivered on BattleLock's worker threads, never on the server thread. Each subscriber
+     * has a bounded buffer; what happens when it is full is set by event-stream-overflow in config.yml.
+     * Changes received from other servers through sync-transport are not part of the stream.
+     *
+     * @return The publisher to subscribe to
+     */
+    Flow.Publisher<CombatEvent> getEventStream();
+}
@@ -0,0 +1,19 @@
+package com.jellypudding.battleLock.api;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * The combat state of a tagged player at the time it was taken
+ *
+ * @param playerId The UUID of the player
+ * @param remaining The time left on their combat tag
+ * @param opponents The UUIDs of the players they fought during this tag
+ */
+public record TaggedPlayerSnapshot(UUID playerId, Duration remaining, Set<UUID> opponents) {
+
+    public TaggedPlayerSnapshot {
+        opponents = Set.copyOf(opponents);
+    }
+}
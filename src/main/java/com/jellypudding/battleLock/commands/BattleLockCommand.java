@@ -0,0 +1,153 @@
+package com.jellypudding.battleLock.commands;
+
+import com.jellypudding.battleLock.BattleLock;
+import com.jellypudding.battleLock.config.Settings;
+import com.jellypudding.battleLock.managers.CombatManager;
+import com.jellypudding.battleLock.managers.CombatantIndex;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.format.NamedTextColor;
+import org.bukkit.Location;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
+import org.bukkit.command.TabExecutor;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
+/**
+ * Handles /battlelock and its subcommands
+ */
+public class BattleLockCommand implements TabExecutor {
+
+    private static final List<String> SUBCOMMANDS = List.of("reload", "nearby");
+    private static final int DEFAULT_NEARBY_RADIUS = 64;
+    private static final int MAX_NEARBY_RADIUS = 256;
+
+    private final BattleLock plugin;
+
+    public BattleLockCommand(BattleLock plugin) {
+        this.plugin = plugin;
+    }
+
+    @Override
+    public boolean onCommand(@NotNull CommandSender sender, @NotNull Command command, @NotNull String label, @NotNull String[] args) {
+        if (args.length == 0) {
+            sender.sendMessage(Component.text("Usage: /" + label + " <" + String.join("|", SUBCOMMANDS) + ">", NamedTextColor.RED));
+            return true;
+        }
+
+        switch (args[0].toLowerCase(Locale.ROOT)) {
+            case "reload" -> reload(sender);
+            case "nearby" -> nearby(sender, args);
+            default -> sender.sendMessage(Component.text("Unknown subcommand: " + args[0], NamedTextColor.RED));
+        }
+        return true;
+    }
+
+    @Override
+    public List<String> onTabComplete(@NotNull CommandSender sender, @NotNull Command command, @NotNull String label, @NotNull String[] args) {
+        if (args.length != 1) {
+            return List.of();
+        }
+
+        List<String> completions = new ArrayList<>();
+        for (String subcommand : SUBCOMMANDS) {
+            if (subcommand.startsWith(args[0].toLowerCase(Locale.ROOT)) && sender.hasPermission("battlelock." + subcommand)) {
+                completions.add(subcommand);
+            }
+        }
+        return completions;
+    }
+
+    /**
+     * List the tagged players around the sender, closest first
+     */
+    private void nearby(CommandSender sender, String[] args) {
+        if (!sender.hasPermission("battlelock.nearby")) {
+            sender.sendMessage(Component.text("You do not have permission to view nearby combatants.", NamedTextColor.RED));
+            return;
+        }
+        if (!(sender instanceof Player player)) {
+            sender.sendMessage(Component.text("Only players can view nearby combatants.", NamedTextColor.RED));
+            return;
+        }
+
+        int radius = DEFAULT_NEARBY_RADIUS;
+        if (args.length > 1) {
+            try {
+                radius = Math.max(1, Math.min(MAX_NEARBY_RADIUS, Integer.parseInt(args[1])));
+            } catch (NumberFormatException e) {
+                sender.sendMessage(Component.text("Radius must be a number: " + args[1], NamedTextColor.RED));
+                return;
+            }
+        }
+
+        CombatManager combatManager = plugin.getCombatManager();
+        Location location = player.getLocation();
+        List<CombatantIndex.Position> nearby = new ArrayList<>();
+        combatManager.forEachCombatantWithin(location, radius, nearby::add);
+        nearby.sort(Comparator.comparingDouble(position -> position.distanceSquared(location.getX(), location.getY(), location.getZ())));
+
+        if (nearby.isEmpty()) {
+            sender.sendMessage(Component.text("No players in combat within " + radius + " blocks.", NamedTextColor.GREEN));
+            return;
+        }
+
+        sender.sendMessage(Component.text(nearby.size() + " player(s) in combat within " + radius + " blocks:", NamedTextColor.GOLD));
+        for (CombatantIndex.Position position : nearby) {
+            double distance = Math.sqrt(position.distanceSquared(location.getX(), location.getY(), location.getZ()));
+            List<String> opponentNames = new ArrayList<>();
+            for (UUID opponentId : combatManager.getOpponents(position.playerId())) {
+                opponentNames.add(playerName(opponentId));
+            }
+
+            sender.sendMessage(Component.text(" - " + playerName(position.playerId()), NamedTextColor.YELLOW)
+                    .append(Component.text(String.format(Locale.ROOT, " %.0fm, %ds left", distance,
+                            combatManager.getTimeUntilTagExpires(position.playerId())), NamedTextColor.GRAY))
+                    .append(Component.text(opponentNames.isEmpty() ? "" : ", fighting " + String.join(", ", opponentNames), NamedTextColor.GRAY)));
+        }
+    }
+
+    private String playerName(UUID playerId) {
+        Player player = plugin.getServer().getPlayer(playerId);
+        if (player != null) {
+            return player.getName();
+        }
+        String name = plugin.getServer().getOfflinePlayer(playerId).getName();
+        return name != null ? name : playerId.toString();
+    }
+
+    private void reload(CommandSender sender) {
+        if (!sender.hasPermission("battlelock.reload")) {
+            sender.sendMessage(Component.text("You do not have permission to reload BattleLock.", NamedTextColor.RED));
+            return;
+        }
+
+        List<String> problems = new ArrayList<>();
+        Settings previous = plugin.reloadSettings(problems);
+        if (previous == null) {
+            sender.sendMessage(Component.text("config.yml has errors, the current settings were kept:", NamedTextColor.RED));
+            for (String problem : problems) {
+                sender.sendMessage(Component.text(" - " + problem, NamedTextColor.RED));
+            }
+            return;
+        }
+
+        List<String> changes = plugin.getSettings().diff(previous);
+        if (changes.isEmpty()) {
+            sender.sendMessage(Component.text("BattleLock reloaded, no settings changed.", NamedTextColor.GREEN));
+            return;
+        }
+
+        sender.sendMessage(Component.text("BattleLock reloaded, " + changes.size() + " setting(s) changed:", NamedTextColor.GREEN));
+        for (String change : changes) {
+            sender.sendMessage(Component.text(" - " + change, NamedTextColor.YELLOW));
+        }
+        plugin.getLogger().info(sender.getName() + " reloaded the configuration: " + String.join(", ", changes));
+    }
+}
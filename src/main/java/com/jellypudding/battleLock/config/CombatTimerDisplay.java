@@ -0,0 +1,48 @@
+package com.jellypudding.battleLock.config;
+
+import java.util.Locale;
+
+/**
+ * Where tagged players see how long they have left in combat
+ */
+public enum CombatTimerDisplay {
+
+    /**
+     * No live timer
+     */
+    NONE,
+
+    /**
+     * A countdown in the action bar
+     */
+    ACTION_BAR,
+
+    /**
+     * A boss bar that empties as the tag runs out
+     */
+    BOSS_BAR;
+
+    /**
+     * Get the name used in config.yml
+     *
+     * @return The config name, e.g. action-bar
+     */
+    public String configName() {
+        return name().toLowerCase(Locale.ROOT).replace('_', '-');
+    }
+
+    /**
+     * Look up a display by its config name
+     *
+     * @param name The config name
+     * @return The display, or null if there is none with that name
+     */
+    public static CombatTimerDisplay fromConfigName(String name) {
+        for (CombatTimerDisplay display : values()) {
+            if (display.configName().equalsIgnoreCase(name)) {
+                return display;
+            }
+        }
+        return null;
+    }
+}
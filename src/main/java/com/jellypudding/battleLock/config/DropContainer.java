@@ -0,0 +1,43 @@
+package com.jellypudding.battleLock.config;
+
+import java.util.Locale;
+
+/**
+ * What the items of a killed combat log NPC are put into
+ */
+public enum DropContainer {
+
+    /**
+     * Items are dropped on the ground, spread over several ticks
+     */
+    NONE,
+
+    /**
+     * Items are put into a single chest minecart, anything that does not fit is dropped
+     */
+    CHEST_MINECART;
+
+    /**
+     * Get the name used in config.yml
+     *
+     * @return The config name, e.g. chest-minecart
+     */
+    public String configName() {
+        return name().toLowerCase(Locale.ROOT).replace('_', '-');
+    }
+
+    /**
+     * Look up a container by its config name
+     *
+     * @param name The config name
+     * @return The container, or null if there is none with that name
+     */
+    public static DropContainer fromConfigName(String name) {
+        for (DropContainer container : values()) {
+            if (container.configName().equalsIgnoreCase(name)) {
+                return container;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,43 @@
+package com.jellypudding.battleLock.config;
+
+import java.util.Locale;
+
+/**
+ * What the combat event stream does when a subscriber cannot keep up
+ */
+public enum EventOverflow {
+
+    /**
+     * Events are dropped for the subscriber whose buffer is full
+     */
+    DROP,
+
+    /**
+     * Delivery waits until the subscriber has room; events queue up off the main thread meanwhile
+     */
+    BLOCK;
+
+    /**
+     * Get the name used in config.yml
+     *
+     * @return The config name, e.g. drop
+     */
+    public String configName() {
+        return name().toLowerCase(Locale.ROOT).replace('_', '-');
+    }
+
+    /**
+     * Look up a policy by its config name
+     *
+     * @param name The config name
+     * @return The policy, or null if there is none with that name
+     */
+    public static EventOverflow fromConfigName(String name) {
+        for (EventOverflow overflow : values()) {
+            if (overflow.configName().equalsIgnoreCase(name)) {
+                return overflow;
+            }
+        }
+        return null;
+    }
+}
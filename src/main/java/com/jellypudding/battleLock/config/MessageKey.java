@@ -0,0 +1,71 @@
+package com.jellypudding.battleLock.config;
+
+import java.util.List;
+
+/**
+ * The configurable player messages, with their config.yml names, defaults and placeholders
+ */
+public enum MessageKey {
+
+    COMBAT_STARTED("combat-started", "&cYou are now in combat! Do not log out or you will be punished!"),
+    COMBAT_ENDED("combat-ended", "&aYou are no longer in combat. You may now log out safely."),
+    COMBAT_TIMER("combat-timer", "&cIn combat: {time}s", "time"),
+    COMMAND_BLOCKED("command-blocked", "&cYou cannot use commands while in combat. Time remaining: {time}s", "time"),
+    NPC_KILLED("combat-log-npc-killed", "&cYour combat log NPC was killed while you were offline. You have lost your items."),
+    NPC_RETURNED("combat-log-npc-returned", "&aYour combat log NPC has been removed. You are no longer in combat and may log out safely."),
+    NPC_RETURNED_IN_COMBAT("combat-log-npc-returned-in-combat", "&cYour combat log NPC has been removed. You are still in combat for {time} more seconds.", "time"),
+    DROP_CONTAINER_NAME("drop-container-name", "{player}'s items", "player"),
+    STORAGE_UNAVAILABLE("storage-unavailable", "&cCombat log records could not be loaded. Please try again shortly.");
+
+    private final String configName;
+    private final String defaultValue;
+    private final List<String> placeholders;
+
+    MessageKey(String configName, String defaultValue, String... placeholders) {
+        this.configName = configName;
+        this.defaultValue = defaultValue;
+        this.placeholders = List.of(placeholders);
+    }
+
+    /**
+     * Get the name used in the messages section of config.yml
+     *
+     * @return The config name
+     */
+    public String configName() {
+        return configName;
+    }
+
+    /**
+     * Get the message used when config.yml does not define one
+     *
+     * @return The default message
+     */
+    public String defaultValue() {
+        return defaultValue;
+    }
+
+    /**
+     * Get the placeholders of this message, in the order their values are passed
+     *
+     * @return The placeholder names, without braces
+     */
+    public List<String> placeholders() {
+        return placeholders;
+    }
+
+    /**
+     * Look up a message by its config name
+     *
+     * @param name The config name
+     * @return The message key, or null if there is none with that name
+     */
+    public static MessageKey fromConfigName(String name) {
+        for (MessageKey key : values()) {
+            if (key.configName.equals(name)) {
+                return key;
+            }
+        }
+        return null;
+    }
+}
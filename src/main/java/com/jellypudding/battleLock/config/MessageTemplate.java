@@ -0,0 +1,154 @@
+package com.jellypudding.battleLock.config;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.TextComponent;
+import net.kyori.adventure.text.minimessage.MiniMessage;
+import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A message parsed once into a component.
+ * <p>
+ * Messages using legacy colour codes (&amp;c or &sect;c) are parsed as legacy text, everything else as MiniMessage.
+ * Placeholders are swapped for private-use marker characters before parsing, so filling them in
+ * only rebuilds the text nodes on the path to a marker - everything else is shared. Values are
+ * inserted as plain text in the style around the placeholder and are never parsed themselves.
+ */
+public final class MessageTemplate {
+
+    private static final char MARKER_BASE = '\uE000';
+    private static final Pattern LEGACY_CODE = Pattern.compile("[&§][0-9a-fk-orxA-FK-ORX]");
+    private static final LegacyComponentSerializer LEGACY_AMPERSAND = LegacyComponentSerializer.legacyAmpersand();
+    private static final LegacyComponentSerializer LEGACY_SECTION = LegacyComponentSerializer.legacySection();
+
+    private final String raw;
+    private final int placeholderCount;
+    private final Component component;
+    private final Set<Component> dynamic; // Nodes with a marker in their subtree
+
+    private MessageTemplate(String raw, int placeholderCount, Component component, Set<Component> dynamic) {
+        this.raw = raw;
+        this.placeholderCount = placeholderCount;
+        this.component = component;
+        this.dynamic = dynamic;
+    }
+
+    /**
+     * Parse a message
+     *
+     * @param raw The message from config.yml
+     * @param placeholders The placeholder names, without braces, in the order their values are passed
+     * @return The template
+     */
+    public static MessageTemplate compile(String raw, List<String> placeholders) {
+        String marked = raw;
+        for (int i = 0; i < placeholders.size(); i++) {
+            marked = marked.replace("{" + placeholders.get(i) + "}", String.valueOf((char) (MARKER_BASE + i)));
+        }
+
+        Matcher legacy = LEGACY_CODE.matcher(marked);
+        Component component;
+        if (legacy.find()) {
+            // The first code decides which colour code character the message uses
+            component = (legacy.group().charAt(0) == '§' ? LEGACY_SECTION : LEGACY_AMPERSAND).deserialize(marked);
+        } else {
+            component = MiniMessage.miniMessage().deserialize(marked);
+        }
+
+        Set<Component> dynamic = Collections.newSetFromMap(new IdentityHashMap<>());
+        if (!placeholders.isEmpty()) {
+            mark(component, placeholders.size(), dynamic);
+        }
+        return new MessageTemplate(raw, placeholders.size(), component, dynamic);
+    }
+
+    /**
+     * Fill in the placeholders
+     *
+     * @param values The placeholder values, in the order of the message's placeholders
+     * @return The message component
+     */
+    public Component render(String... values) {
+        if (dynamic.isEmpty()) {
+            return component;
+        }
+        return render(component, values);
+    }
+
+    /**
+     * Check if the message is empty, meaning it should not be sent
+     *
+     * @return True if the message is empty, false otherwise
+     */
+    public boolean isEmpty() {
+        return raw.isEmpty();
+    }
+
+    /**
+     * Get the message as written in config.yml
+     *
+     * @return The raw message
+     */
+    public String raw() {
+        return raw;
+    }
+
+    private Component render(Component node, String[] values) {
+        if (!dynamic.contains(node)) {
+            return node;
+        }
+
+        List<Component> children = node.children();
+        List<Component> rendered = new ArrayList<>(children.size());
+        for (Component child : children) {
+            rendered.add(render(child, values));
+        }
+
+        if (node instanceof TextComponent text && hasMarker(text.content(), placeholderCount)) {
+            return text.content(fill(text.content(), values)).children(rendered);
+        }
+        return node.children(rendered);
+    }
+
+    private String fill(String content, String[] values) {
+        StringBuilder builder = new StringBuilder(content.length() + 16);
+        for (int i = 0; i < content.length(); i++) {
+            char c = content.charAt(i);
+            int index = c - MARKER_BASE;
+            if (index >= 0 && index < placeholderCount) {
+                builder.append(index < values.length ? values[index] : "");
+            } else {
+                builder.append(c);
+            }
+        }
+        return builder.toString();
+    }
+
+    private static boolean mark(Component node, int placeholderCount, Set<Component> dynamic) {
+        boolean hasMarker = node instanceof TextComponent text && hasMarker(text.content(), placeholderCount);
+        for (Component child : node.children()) {
+            hasMarker |= mark(child, placeholderCount, dynamic);
+        }
+        if (hasMarker) {
+            dynamic.add(node);
+        }
+        return hasMarker;
+    }
+
+    private static boolean hasMarker(String content, int placeholderCount) {
+        for (int i = 0; i < content.length(); i++) {
+            int index = content.charAt(i) - MARKER_BASE;
+            if (index >= 0 && index < placeholderCount) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
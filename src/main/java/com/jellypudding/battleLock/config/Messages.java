@@ -0,0 +1,182 @@
+package com.jellypudding.battleLock.config;
+
+import net.kyori.adventure.text.Component;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The player messages of the messages section of config.yml, parsed once into templates.
+ * <p>
+ * Per-locale variants live under messages.locales, keyed by a client locale such as de_de or
+ * just a language such as de. A message missing from a variant falls back to the default one.
+ * Instances are immutable apart from a cache of the resolved variant per client locale.
+ */
+public final class Messages {
+
+    private static final String LOCALES = "locales";
+
+    private final Map<MessageKey, MessageTemplate> defaults;
+    private final Map<String, Map<MessageKey, MessageTemplate>> variants; // Locale tag -> messages
+    private final Map<Locale, Map<MessageKey, MessageTemplate>> resolved; // Client locale -> messages
+
+    private Messages(Map<MessageKey, MessageTemplate> defaults, Map<String, Map<MessageKey, MessageTemplate>> variants) {
+        this.defaults = defaults;
+        this.variants = variants;
+        this.resolved = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Parse the messages section
+     *
+     * @param section The messages section, or null to use the defaults
+     * @param problems Receives a description of every invalid message
+     * @return The messages
+     */
+    public static Messages load(ConfigurationSection section, List<String> problems) {
+        Map<MessageKey, MessageTemplate> defaults = new EnumMap<>(MessageKey.class);
+        for (MessageKey key : MessageKey.values()) {
+            String raw = section == null ? key.defaultValue() : section.getString(key.configName(), key.defaultValue());
+            defaults.put(key, compile(key, raw, "messages." + key.configName(), problems));
+        }
+
+        Map<String, Map<MessageKey, MessageTemplate>> variants = new HashMap<>();
+        if (section != null) {
+            checkKeys(section, "messages", problems);
+
+            ConfigurationSection locales = section.getConfigurationSection(LOCALES);
+            if (locales != null) {
+                for (String tag : locales.getKeys(false)) {
+                    ConfigurationSection localeSection = locales.getConfigurationSection(tag);
+                    String path = "messages.locales." + tag;
+                    if (localeSection == null) {
+                        problems.add(path + " must be a section of messages");
+                        continue;
+                    }
+                    checkKeys(localeSection, path, problems);
+
+                    Map<MessageKey, MessageTemplate> variant = new EnumMap<>(defaults);
+                    for (MessageKey key : MessageKey.values()) {
+                        String raw = localeSection.getString(key.configName());
+                        if (raw != null) {
+                            variant.put(key, compile(key, raw, path + "." + key.configName(), problems));
+                        }
+                    }
+                    variants.put(tag.toLowerCase(Locale.ROOT).replace('-', '_'), variant);
+                }
+            }
+        }
+        return new Messages(defaults, variants);
+    }
+
+    /**
+     * Get the template of a message for a locale
+     *
+     * @param key The message
+     * @param locale The client locale
+     * @return The template of the best matching variant
+     */
+    public MessageTemplate template(MessageKey key, Locale locale) {
+        if (variants.isEmpty()) {
+            return defaults.get(key);
+        }
+        return resolved.computeIfAbsent(locale, this::resolve).get(key);
+    }
+
+    /**
+     * Get the default template of a message
+     *
+     * @param key The message
+     * @return The template
+     */
+    public MessageTemplate template(MessageKey key) {
+        return defaults.get(key);
+    }
+
+    /**
+     * Send a message to a player in their locale, unless the message is empty
+     *
+     * @param player The player
+     * @param key The message
+     * @param values The placeholder values, in the order of the message's placeholders
+     */
+    public void send(Player player, MessageKey key, String... values) {
+        MessageTemplate template = template(key, player.locale());
+        if (!template.isEmpty()) {
+            player.sendMessage(template.render(values));
+        }
+    }
+
+    /**
+     * Render a message in the default locale
+     *
+     * @param key The message
+     * @param values The placeholder values, in the order of the message's placeholders
+     * @return The message component
+     */
+    public Component render(MessageKey key, String... values) {
+        return defaults.get(key).render(values);
+    }
+
+    /**
+     * Describe every message that differs from another set of messages
+     *
+     * @param previous The messages being replaced
+     * @return One line per changed message
+     */
+    public List<String> diff(Messages previous) {
+        List<String> changes = new ArrayList<>();
+        for (MessageKey key : MessageKey.values()) {
+            if (!defaults.get(key).raw().equals(previous.defaults.get(key).raw())) {
+                changes.add("messages." + key.configName());
+            }
+        }
+        if (!raws(variants).equals(raws(previous.variants))) {
+            changes.add("messages.locales");
+        }
+        return changes;
+    }
+
+    private Map<MessageKey, MessageTemplate> resolve(Locale locale) {
+        Map<MessageKey, MessageTemplate> variant = variants.get(locale.toString().toLowerCase(Locale.ROOT));
+        if (variant == null) {
+            variant = variants.get(locale.getLanguage().toLowerCase(Locale.ROOT));
+        }
+        return Objects.requireNonNullElse(variant, defaults);
+    }
+
+    private static MessageTemplate compile(MessageKey key, String raw, String path, List<String> problems) {
+        try {
+            return MessageTemplate.compile(raw, key.placeholders());
+        } catch (RuntimeException e) {
+            problems.add(path + " could not be parsed: " + e.getMessage());
+            return MessageTemplate.compile(key.defaultValue(), key.placeholders());
+        }
+    }
+
+    private static void checkKeys(ConfigurationSection section, String path, List<String> problems) {
+        for (String name : section.getKeys(false)) {
+            if (!name.equals(LOCALES) && MessageKey.fromConfigName(name) == null) {
+                problems.add(path + "." + name + " is not a known message");
+            }
+        }
+    }
+
+    private static Map<String, Map<MessageKey, String>> raws(Map<String, Map<MessageKey, MessageTemplate>> variants) {
+        Map<String, Map<MessageKey, String>> raws = new HashMap<>();
+        variants.forEach((tag, variant) -> {
+            Map<MessageKey, String> messages = new EnumMap<>(MessageKey.class);
+            variant.forEach((key, template) -> messages.put(key, template.raw()));
+            raws.put(tag, messages);
+        });
+        return raws;
+    }
+}
@@ -0,0 +1,43 @@
+package com.jellypudding.battleLock.config;
+
+import java.util.Locale;
+
+/**
+ * The entity used as the body of a combat log NPC
+ */
+public enum NpcBody {
+
+    /**
+     * A Paper mannequin - shows the player's skin and armour, has no AI, and is not pushed around
+     */
+    MANNEQUIN,
+
+    /**
+     * A villager with its AI disabled, as in earlier versions
+     */
+    VILLAGER;
+
+    /**
+     * Get the name used in config.yml
+     *
+     * @return The config name, e.g. mannequin
+     */
+    public String configName() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Look up a body type by its config name
+     *
+     * @param name The config name
+     * @return The body type, or null if there is none with that name
+     */
+    public static NpcBody fromConfigName(String name) {
+        for (NpcBody body : values()) {
+            if (body.configName().equalsIgnoreCase(name)) {
+                return body;
+            }
+        }
+        return null;
+    }
+}
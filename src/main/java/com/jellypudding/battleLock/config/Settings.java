@@ -0,0 +1,249 @@
+package com.jellypudding.battleLock.config;
+
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.entity.EntityType;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Immutable snapshot of config.yml.
+ * Compiled once on load and on reload, then read lock-free so hot paths never touch the YAML tree.
+ *
+ * @param combatTagDuration How long a combat tag lasts, in seconds
+ * @param combatTimer Where tagged players see their remaining combat time
+ * @param combatLogDespawnTime How long a combat log NPC stays before despawning, in seconds
+ * @param combatLogDespawnPerTick The maximum number of NPCs despawned per tick
+ * @param npcBody The entity used as the body of combat log NPCs
+ * @param npcDropStacksPerTick The maximum number of item stacks dropped per tick for killed NPCs
+ * @param npcDropContainer What the items of a killed NPC are put into
+ * @param allowedCommands Commands allowed during combat
+ * @param permissionAllowedCommands Permission -> extra commands allowed during combat
+ * @param allowBypass Whether players with battlelock.bypass are never tagged
+ * @param mobTagging Mob types that tag the players they attack
+ * @param safeLogoutRadius Tagged players with no opponent within this many blocks may log out safely, 0 to disable
+ * @param storageBackend The punishment record storage backend, journal or yaml
+ * @param syncTransport How combat state is shared with other servers, none, plugin-messaging or loopback
+ * @param syncSharedInventories Whether the servers share player inventories, so punishments are carried out on any of them
+ * @param eventStreamBuffer The number of combat events buffered per event stream subscriber
+ * @param eventStreamOverflow What the event stream does when a subscriber's buffer is full
+ * @param messages The player messages
+ */
+public record Settings(int combatTagDuration,
+                       CombatTimerDisplay combatTimer,
+                       int combatLogDespawnTime,
+                       int combatLogDespawnPerTick,
+                       NpcBody npcBody,
+                       int npcDropStacksPerTick,
+                       DropContainer npcDropContainer,
+                       List<String> allowedCommands,
+                       Map<String, List<String>> permissionAllowedCommands,
+                       boolean allowBypass,
+                       Set<EntityType> mobTagging,
+                       int safeLogoutRadius,
+                       String storageBackend,
+                       String syncTransport,
+                       boolean syncSharedInventories,
+                       int eventStreamBuffer,
+                       EventOverflow eventStreamOverflow,
+                       Messages messages) {
+
+    private static final List<String> DEFAULT_ALLOWED_COMMANDS = List.of("tell", "msg", "r", "me");
+    private static final List<String> STORAGE_BACKENDS = List.of("journal", "yaml");
+    private static final List<String> SYNC_TRANSPORTS = List.of("none", "plugin-messaging", "loopback");
+    private static final int MAX_SAFE_LOGOUT_RADIUS = 512;
+
+    public Settings {
+        allowedCommands = List.copyOf(allowedCommands);
+        mobTagging = Collections.unmodifiableSet(mobTagging.isEmpty() ? EnumSet.noneOf(EntityType.class) : EnumSet.copyOf(mobTagging));
+        Map<String, List<String>> permissions = new LinkedHashMap<>();
+        permissionAllowedCommands.forEach((permission, commands) -> permissions.put(permission, List.copyOf(commands)));
+        permissionAllowedCommands = Collections.unmodifiableMap(permissions);
+    }
+
+    /**
+     * Compile the settings from a configuration.
+     * Invalid values are reported and replaced with their defaults.
+     *
+     * @param config The plugin configuration
+     * @param problems Receives a description of every invalid value
+     * @return The settings
+     */
+    public static Settings load(ConfigurationSection config, List<String> problems) {
+        int combatTagDuration = atLeast(config, "combat-tag-duration", 15, 1, problems);
+
+        String timerName = config.getString("combat-timer", "action-bar");
+        CombatTimerDisplay combatTimer = CombatTimerDisplay.fromConfigName(timerName);
+        if (combatTimer == null) {
+            problems.add("combat-timer must be none, action-bar or boss-bar, got '" + timerName + "'");
+            combatTimer = CombatTimerDisplay.ACTION_BAR;
+        }
+
+        int combatLogDespawnTime = atLeast(config, "combat-log-despawn-time", 30, 1, problems);
+        int combatLogDespawnPerTick = atLeast(config, "combat-log-despawn-per-tick", 10, 1, problems);
+
+        String bodyName = config.getString("npc-body", "mannequin");
+        NpcBody npcBody = NpcBody.fromConfigName(bodyName);
+        if (npcBody == null) {
+            problems.add("npc-body must be mannequin or villager, got '" + bodyName + "'");
+            npcBody = NpcBody.MANNEQUIN;
+        }
+
+        int npcDropStacksPerTick = atLeast(config, "npc-drop-stacks-per-tick", 8, 1, problems);
+
+        String containerName = config.getString("npc-drop-container", "none");
+        DropContainer npcDropContainer = DropContainer.fromConfigName(containerName);
+        if (npcDropContainer == null) {
+            problems.add("npc-drop-container must be none or chest-minecart, got '" + containerName + "'");
+            npcDropContainer = DropContainer.NONE;
+        }
+
+        List<String> allowedCommands = config.getStringList("allowed-commands");
+        if (allowedCommands.isEmpty()) {
+            allowedCommands = DEFAULT_ALLOWED_COMMANDS;
+        }
+
+        Map<String, List<String>> permissionAllowedCommands = new LinkedHashMap<>();
+        ConfigurationSection section = config.getConfigurationSection("permission-allowed-commands");
+        if (section != null) {
+            for (String permission : section.getKeys(false)) {
+                if (!section.isList(permission)) {
+                    problems.add("permission-allowed-commands." + permission + " must be a list of commands");
+                    continue;
+                }
+                permissionAllowedCommands.put(permission, section.getStringList(permission));
+            }
+        }
+
+        Set<EntityType> mobTagging = EnumSet.noneOf(EntityType.class);
+        for (String name : config.getStringList("mob-tagging")) {
+            try {
+                mobTagging.add(EntityType.valueOf(name.trim().toUpperCase(Locale.ROOT).replace('-', '_')));
+            } catch (IllegalArgumentException e) {
+                problems.add("mob-tagging contains an unknown entity type '" + name + "'");
+            }
+        }
+
+        int safeLogoutRadius = atLeast(config, "safe-logout-radius", 0, 0, problems);
+        if (safeLogoutRadius > MAX_SAFE_LOGOUT_RADIUS) {
+            problems.add("safe-logout-radius must be at most " + MAX_SAFE_LOGOUT_RADIUS + ", got " + safeLogoutRadius);
+            safeLogoutRadius = 0;
+        }
+
+        String storageBackend = config.getString("storage-backend", "journal").toLowerCase(Locale.ROOT);
+        if (!STORAGE_BACKENDS.contains(storageBackend)) {
+            problems.add("storage-backend must be one of " + STORAGE_BACKENDS + ", got '" + storageBackend + "'");
+            storageBackend = "journal";
+        }
+
+        String syncTransport = config.getString("sync-transport", "none").toLowerCase(Locale.ROOT);
+        if (!SYNC_TRANSPORTS.contains(syncTransport)) {
+            problems.add("sync-transport must be one of " + SYNC_TRANSPORTS + ", got '" + syncTransport + "'");
+            syncTransport = "none";
+        }
+
+        int eventStreamBuffer = atLeast(config, "event-stream-buffer", 256, 1, problems);
+
+        String overflowName = config.getString("event-stream-overflow", "drop");
+        EventOverflow eventStreamOverflow = EventOverflow.fromConfigName(overflowName);
+        if (eventStreamOverflow == null) {
+            problems.add("event-stream-overflow must be drop or block, got '" + overflowName + "'");
+            eventStreamOverflow = EventOverflow.DROP;
+        }
+
+        return new Settings(combatTagDuration, combatTimer, combatLogDespawnTime, combatLogDespawnPerTick, npcBody,
+                npcDropStacksPerTick, npcDropContainer, allowedCommands,
+                permissionAllowedCommands, config.getBoolean("allow-bypass", true), mobTagging, safeLogoutRadius, storageBackend,
+                syncTransport, config.getBoolean("sync-shared-inventories", false), eventStreamBuffer, eventStreamOverflow, Messages.load(config.getConfigurationSection("messages"), problems));
+    }
+
+    /**
+     * Get the combat tag duration
+     *
+     * @return The duration in nanoseconds
+     */
+    public long combatTagDurationNanos() {
+        return TimeUnit.SECONDS.toNanos(combatTagDuration);
+    }
+
+    /**
+     * Get the time a combat log NPC stays before despawning
+     *
+     * @return The time in milliseconds
+     */
+    public long combatLogDespawnMillis() {
+        return TimeUnit.SECONDS.toMillis(combatLogDespawnTime);
+    }
+
+    /**
+     * Check if the punishment records are kept in the journal
+     *
+     * @return True for the journal backend, false for the legacy YAML layout
+     */
+    public boolean useJournal() {
+        return "journal".equals(storageBackend);
+    }
+
+    /**
+     * Describe every setting that differs from another snapshot
+     *
+     * @param previous The settings being replaced
+     * @return One line per changed setting
+     */
+    public List<String> diff(Settings previous) {
+        List<String> changes = new ArrayList<>();
+        compare(changes, "combat-tag-duration", previous.combatTagDuration, combatTagDuration);
+        compare(changes, "combat-timer", previous.combatTimer.configName(), combatTimer.configName());
+        compare(changes, "combat-log-despawn-time", previous.combatLogDespawnTime, combatLogDespawnTime);
+        compare(changes, "combat-log-despawn-per-tick", previous.combatLogDespawnPerTick, combatLogDespawnPerTick);
+        compare(changes, "npc-body", previous.npcBody.configName(), npcBody.configName());
+        compare(changes, "npc-drop-stacks-per-tick", previous.npcDropStacksPerTick, npcDropStacksPerTick);
+        compare(changes, "npc-drop-container", previous.npcDropContainer.configName(), npcDropContainer.configName());
+        compare(changes, "allowed-commands", previous.allowedCommands, allowedCommands);
+        compare(changes, "permission-allowed-commands", previous.permissionAllowedCommands, permissionAllowedCommands);
+        compare(changes, "allow-bypass", previous.allowBypass, allowBypass);
+        compare(changes, "mob-tagging", previous.mobTagging, mobTagging);
+        compare(changes, "safe-logout-radius", previous.safeLogoutRadius, safeLogoutRadius);
+        if (!previous.storageBackend.equals(storageBackend)) {
+            changes.add("storage-backend: " + previous.storageBackend + " -> " + storageBackend + " (takes effect after a restart)");
+        }
+        if (!previous.syncTransport.equals(syncTransport)) {
+            changes.add("sync-transport: " + previous.syncTransport + " -> " + syncTransport + " (takes effect after a restart)");
+        }
+        compare(changes, "sync-shared-inventories", previous.syncSharedInventories, syncSharedInventories);
+        if (previous.eventStreamBuffer != eventStreamBuffer) {
+            changes.add("event-stream-buffer: " + previous.eventStreamBuffer + " -> " + eventStreamBuffer + " (takes effect after a restart)");
+        }
+        compare(changes, "event-stream-overflow", previous.eventStreamOverflow.configName(), eventStreamOverflow.configName());
+        changes.addAll(messages.diff(previous.messages));
+        return changes;
+    }
+
+    private static void compare(List<String> changes, String key, Object previous, Object current) {
+        if (!Objects.equals(previous, current)) {
+            changes.add(key + ": " + previous + " -> " + current);
+        }
+    }
+
+    private static int atLeast(ConfigurationSection config, String key, int defaultValue, int minimum, List<String> problems) {
+        if (config.contains(key) && !config.isInt(key)) {
+            problems.add(key + " must be a whole number, got '" + config.get(key) + "'");
+            return defaultValue;
+        }
+
+        int value = config.getInt(key, defaultValue);
+        if (value < minimum) {
+            problems.add(key + " must be at least " + minimum + ", got " + value);
+            return defaultValue;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,73 @@
+package com.jellypudding.battleLock.events;
+
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Player;
+import org.bukkit.event.Event;
+import org.bukkit.event.HandlerList;
+
+import java.util.UUID;
+
+/**
+ * Called when a combat log NPC is killed. Its owner loses their items the next time they join.
+ */
+public class CombatLogNpcKillEvent extends Event {
+
+    private static final HandlerList HANDLERS = new HandlerList();
+
+    private final UUID playerId;
+    private final String playerName;
+    private final Entity npc;
+    private final Player killer;
+
+    public CombatLogNpcKillEvent(UUID playerId, String playerName, Entity npc, Player killer) {
+        this.playerId = playerId;
+        this.playerName = playerName;
+        this.npc = npc;
+        this.killer = killer;
+    }
+
+    /**
+     * Get the UUID of the player the NPC stood in for
+     *
+     * @return The player's UUID
+     */
+    public UUID getPlayerId() {
+        return playerId;
+    }
+
+    /**
+     * Get the name of the player the NPC stood in for
+     *
+     * @return The player's name
+     */
+    public String getPlayerName() {
+        return playerName;
+    }
+
+    /**
+     * Get the NPC's entity
+     *
+     * @return The entity
+     */
+    public Entity getNpc() {
+        return npc;
+    }
+
+    /**
+     * Get the player who killed the NPC
+     *
+     * @return The killer, or null if the NPC died some other way
+     */
+    public Player getKiller() {
+        return killer;
+    }
+
+    @Override
+    public HandlerList getHandlers() {
+        return HANDLERS;
+    }
+
+    public static HandlerList getHandlerList() {
+        return HANDLERS;
+    }
+}
@@ -0,0 +1,39 @@
+package com.jellypudding.battleLock.events;
+
+import org.bukkit.entity.LivingEntity;
+import org.bukkit.entity.Player;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.player.PlayerEvent;
+
+/**
+ * Called when a player logs out in combat and a combat log NPC is spawned in their place
+ */
+public class CombatLogNpcSpawnEvent extends PlayerEvent {
+
+    private static final HandlerList HANDLERS = new HandlerList();
+
+    private final LivingEntity npc;
+
+    public CombatLogNpcSpawnEvent(Player player, LivingEntity npc) {
+        super(player);
+        this.npc = npc;
+    }
+
+    /**
+     * Get the NPC's entity
+     *
+     * @return The entity
+     */
+    public LivingEntity getNpc() {
+        return npc;
+    }
+
+    @Override
+    public HandlerList getHandlers() {
+        return HANDLERS;
+    }
+
+    public static HandlerList getHandlerList() {
+        return HANDLERS;
+    }
+}
@@ -0,0 +1,26 @@
+package com.jellypudding.battleLock.events;
+
+import org.bukkit.entity.Player;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.player.PlayerEvent;
+
+/**
+ * Called when a player whose combat log NPC was killed joins and their inventory is cleared
+ */
+public class CombatLogPunishmentEvent extends PlayerEvent {
+
+    private static final HandlerList HANDLERS = new HandlerList();
+
+    public CombatLogPunishmentEvent(Player player) {
+        super(player);
+    }
+
+    @Override
+    public HandlerList getHandlers() {
+        return HANDLERS;
+    }
+
+    public static HandlerList getHandlerList() {
+        return HANDLERS;
+    }
+}
@@ -0,0 +1,39 @@
+package com.jellypudding.battleLock.events;
+
+import org.bukkit.entity.Player;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.player.PlayerEvent;
+
+/**
+ * Called when a player enters combat. Refreshing the tag of a player already in combat does not call it.
+ * It is called on the thread owning the player; a tag made on another thread calls it there on a later tick.
+ */
+public class PlayerCombatTagEvent extends PlayerEvent {
+
+    private static final HandlerList HANDLERS = new HandlerList();
+
+    private final Player opponent;
+
+    public PlayerCombatTagEvent(Player player, Player opponent) {
+        super(player);
+        this.opponent = opponent;
+    }
+
+    /**
+     * Get the player whose fight started the tag
+     *
+     * @return The opponent, or null if the player was tagged on their own
+     */
+    public Player getOpponent() {
+        return opponent;
+    }
+
+    @Override
+    public HandlerList getHandlers() {
+        return HANDLERS;
+    }
+
+    public static HandlerList getHandlerList() {
+        return HANDLERS;
+    }
+}
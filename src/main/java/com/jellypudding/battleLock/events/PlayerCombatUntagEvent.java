@@ -0,0 +1,75 @@
+package com.jellypudding.battleLock.events;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.event.Event;
+import org.bukkit.event.HandlerList;
+
+import java.util.UUID;
+
+/**
+ * Called when a player leaves combat. The player may be offline if their tag ran out after they left.
+ * It is called on the thread owning the player, or on the global region thread if they are offline,
+ * which may be a tick after the tag was removed.
+ */
+public class PlayerCombatUntagEvent extends Event {
+
+    private static final HandlerList HANDLERS = new HandlerList();
+
+    private final UUID playerId;
+    private final Reason reason;
+
+    public PlayerCombatUntagEvent(UUID playerId, Reason reason) {
+        this.playerId = playerId;
+        this.reason = reason;
+    }
+
+    /**
+     * Get the UUID of the player who left combat
+     *
+     * @return The player's UUID
+     */
+    public UUID getPlayerId() {
+        return playerId;
+    }
+
+    /**
+     * Get the player who left combat
+     *
+     * @return The player, or null if they are offline
+     */
+    public Player getPlayer() {
+        return Bukkit.getPlayer(playerId);
+    }
+
+    /**
+     * Get why the player left combat
+     *
+     * @return The reason
+     */
+    public Reason getReason() {
+        return reason;
+    }
+
+    @Override
+    public HandlerList getHandlers() {
+        return HANDLERS;
+    }
+
+    public static HandlerList getHandlerList() {
+        return HANDLERS;
+    }
+
+    public enum Reason {
+
+        /**
+         * The tag ran out
+         */
+        EXPIRED,
+
+        /**
+         * The tag was removed, e.g. because the player died
+         */
+        REMOVED
+    }
+}
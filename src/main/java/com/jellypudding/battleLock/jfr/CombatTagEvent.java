@@ -0,0 +1,30 @@
+package com.jellypudding.battleLock.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for a player being tagged or having their tag refreshed
+ */
+@Name("battlelock.CombatTag")
+@Label("Combat Tag")
+@Category({"BattleLock", "Combat"})
+@Description("A player was tagged as being in combat or had their tag refreshed")
+@StackTrace(false)
+public class CombatTagEvent extends Event {
+
+    @Label("Player")
+    public String playerId;
+
+    @Label("Newly Tagged")
+    @Description("False if an existing tag was refreshed")
+    public boolean newlyTagged;
+
+    @Label("Tag Entries")
+    @Description("Entries in the tag table after the update")
+    public int tagEntries;
+}
@@ -0,0 +1,32 @@
+package com.jellypudding.battleLock.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for a command of a tagged player being checked against the allow lists
+ */
+@Name("battlelock.CommandFilter")
+@Label("Combat Command Filter")
+@Category({"BattleLock", "Combat"})
+@Description("A command sent by a player in combat was allowed or blocked")
+@StackTrace(false)
+public class CommandFilterEvent extends Event {
+
+    @Label("Player")
+    public String playerId;
+
+    @Label("Command")
+    public String command;
+
+    @Label("Allowed")
+    public boolean allowed;
+
+    @Label("Permission Checks")
+    @Description("Permission allow list groups whose (cached) permission was checked")
+    public int permissionChecks;
+}
@@ -0,0 +1,44 @@
+package com.jellypudding.battleLock.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for a combat log NPC being spawned, parked with its chunk or removed.
+ * The duration covers the entity work on the region owning the NPC.
+ */
+@Name("battlelock.NpcLifecycle")
+@Label("Combat Log NPC")
+@Category({"BattleLock", "NPC"})
+@Description("A combat log NPC was spawned, restored, parked, respawned, killed or despawned")
+@StackTrace(false)
+public class NpcLifecycleEvent extends Event {
+
+    public static final String SPAWN = "spawn";
+    public static final String RESTORE = "restore";
+    public static final String PARK = "park";
+    public static final String RESPAWN = "respawn";
+    public static final String KILL = "kill";
+    public static final String DESPAWN = "despawn";
+
+    @Label("Action")
+    public String action;
+
+    @Label("Player")
+    public String playerId;
+
+    @Label("Entities Scanned")
+    @Description("Chunk entities checked while resolving the NPC entity")
+    public int entitiesScanned;
+
+    @Label("Item Stacks")
+    @Description("Inventory stacks stored or dropped")
+    public int itemStacks;
+
+    @Label("Live NPCs")
+    public int liveNpcs;
+}
@@ -0,0 +1,40 @@
+package com.jellypudding.battleLock.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for punishment records being read or written
+ */
+@Name("battlelock.PunishmentIo")
+@Label("Punishment Record I/O")
+@Category({"BattleLock", "Storage"})
+@Description("Combat log punishment records were loaded from or written to storage")
+@StackTrace(false)
+public class PunishmentIoEvent extends Event {
+
+    public static final String LOAD = "load";
+    public static final String WRITE = "write";
+    public static final String IMPORT = "import";
+
+    @Label("Operation")
+    public String operation;
+
+    @Label("Backend")
+    public String backend;
+
+    @Label("Records")
+    public int records;
+
+    @Label("Bytes Written")
+    @DataAmount
+    public long bytesWritten;
+
+    @Label("Succeeded")
+    public boolean succeeded;
+}
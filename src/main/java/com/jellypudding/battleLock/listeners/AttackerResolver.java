@@ -0,0 +1,198 @@
+package com.jellypudding.battleLock.listeners;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.NamespacedKey;
+import org.bukkit.block.Block;
+import org.bukkit.entity.AreaEffectCloud;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.EntityType;
+import org.bukkit.entity.EvokerFangs;
+import org.bukkit.entity.Player;
+import org.bukkit.entity.Projectile;
+import org.bukkit.entity.TNTPrimed;
+import org.bukkit.entity.Tameable;
+import org.bukkit.persistence.PersistentDataType;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.potion.PotionEffect;
+import org.bukkit.potion.PotionEffectTypeCategory;
+import org.bukkit.potion.PotionType;
+
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Works out who is responsible for a damaging entity.
+ * <p>
+ * A table keyed by entity type maps each damager to the entity behind it - the shooter of a projectile,
+ * the igniter of TNT, the owner of a tamed animal, the thrower of a potion - and the chain is followed
+ * until it reaches a player or an entity with nobody behind it. End crystals remember who hit them, and
+ * lava placed from a bucket remembers who poured it for a short while.
+ */
+final class AttackerResolver {
+
+    private static final int MAX_HOPS = 4; // e.g. crystal -> TNT -> arrow -> player
+    private static final long LAVA_ATTRIBUTION_MILLIS = 10_000L;
+    private static final int LAVA_CAPACITY = 512;
+
+    private final Map<EntityType, Function<Entity, Entity>> sources; // Damager type -> the entity responsible for it
+    private final NamespacedKey crystalAttackerKey;
+    private final LinkedHashMap<LavaPosition, PlacedLava> placedLava; // Guarded by itself, oldest first
+
+    AttackerResolver(Plugin plugin) {
+        this.crystalAttackerKey = new NamespacedKey(plugin, "crystal_attacker");
+        this.sources = new EnumMap<>(EntityType.class);
+        for (EntityType type : EntityType.values()) {
+            Class<? extends Entity> entityClass = type.getEntityClass();
+            if (entityClass == null) {
+                continue;
+            }
+            // Arrows, tridents, potions, fireworks, wind charges, fireballs...
+            if (Projectile.class.isAssignableFrom(entityClass)) {
+                sources.put(type, entity -> asEntity(((Projectile) entity).getShooter()));
+            } else if (Tameable.class.isAssignableFrom(entityClass)) {
+                sources.put(type, entity -> asEntity(((Tameable) entity).getOwner()));
+            }
+        }
+        sources.put(EntityType.TNT, entity -> ((TNTPrimed) entity).getSource());
+        sources.put(EntityType.AREA_EFFECT_CLOUD, entity -> asEntity(((AreaEffectCloud) entity).getSource()));
+        sources.put(EntityType.EVOKER_FANGS, entity -> ((EvokerFangs) entity).getOwner());
+        sources.put(EntityType.END_CRYSTAL, this::crystalAttacker);
+
+        this.placedLava = new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<LavaPosition, PlacedLava> eldest) {
+                return size() > LAVA_CAPACITY;
+            }
+        };
+    }
+
+    /**
+     * Find the entity responsible for a damager
+     *
+     * @param damager The entity that dealt the damage
+     * @return The player behind it, or otherwise the last entity in the chain (the damager itself if nobody is behind it)
+     */
+    Entity resolve(Entity damager) {
+        Entity current = damager;
+        for (int hop = 0; hop < MAX_HOPS && !(current instanceof Player); hop++) {
+            Function<Entity, Entity> source = sources.get(current.getType());
+            Entity next = source != null ? source.apply(current) : null;
+            if (next == null) {
+                break;
+            }
+            current = next;
+        }
+        return current;
+    }
+
+    /**
+     * Remember the player who hit an end crystal, so its explosion is blamed on them
+     *
+     * @param crystal The crystal
+     * @param damager The entity that hit it
+     */
+    void recordCrystalHit(Entity crystal, Entity damager) {
+        if (resolve(damager) instanceof Player player) {
+            crystal.getPersistentDataContainer().set(crystalAttackerKey, PersistentDataType.STRING, player.getUniqueId().toString());
+        }
+    }
+
+    private Entity crystalAttacker(Entity crystal) {
+        String playerId = crystal.getPersistentDataContainer().get(crystalAttackerKey, PersistentDataType.STRING);
+        if (playerId == null) {
+            return null;
+        }
+
+        try {
+            return Bukkit.getPlayer(UUID.fromString(playerId));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Remember a player pouring lava
+     *
+     * @param player The player who emptied the bucket
+     * @param block The block the lava was placed in
+     */
+    void recordLava(Player player, Block block) {
+        LavaPosition position = new LavaPosition(block.getWorld().getUID(), Block.getBlockKey(block.getX(), block.getY(), block.getZ()));
+        synchronized (placedLava) {
+            placedLava.remove(position);
+            placedLava.put(position, new PlacedLava(player.getUniqueId(), System.currentTimeMillis()));
+        }
+    }
+
+    /**
+     * Find the player who recently poured the lava a player is standing in
+     *
+     * @param victim The player taking lava damage
+     * @return The player who placed the lava, or null if it is not known or they are offline
+     */
+    Player lavaPlacer(Player victim) {
+        Location location = victim.getLocation();
+        UUID worldId = location.getWorld().getUID();
+        int x = location.getBlockX();
+        int y = location.getBlockY();
+        int z = location.getBlockZ();
+        long oldest = System.currentTimeMillis() - LAVA_ATTRIBUTION_MILLIS;
+
+        synchronized (placedLava) {
+            if (placedLava.isEmpty()) {
+                return null;
+            }
+
+            // Feet, then head
+            for (int dy = 0; dy <= 1; dy++) {
+                PlacedLava lava = placedLava.get(new LavaPosition(worldId, Block.getBlockKey(x, y + dy, z)));
+                if (lava != null && lava.placedAt() >= oldest) {
+                    return Bukkit.getPlayer(lava.playerId());
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Check if a potion harms the entities it hits
+     *
+     * @param effects The potion's effects
+     * @return True if any effect is harmful, false otherwise
+     */
+    static boolean isHarmful(Collection<PotionEffect> effects) {
+        for (PotionEffect effect : effects) {
+            if (effect.getType().getCategory() == PotionEffectTypeCategory.HARMFUL) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Check if a lingering potion cloud harms the entities in it
+     *
+     * @param cloud The cloud
+     * @return True if any of its effects is harmful, false otherwise
+     */
+    static boolean isHarmful(AreaEffectCloud cloud) {
+        PotionType baseType = cloud.getBasePotionType();
+        return (baseType != null && isHarmful(baseType.getPotionEffects())) || isHarmful(cloud.getCustomEffects());
+    }
+
+    private static Entity asEntity(Object source) {
+        // Offline owners and dispensers are not entities
+        return source instanceof Entity entity ? entity : null;
+    }
+
+    private record LavaPosition(UUID worldId, long blockKey) {
+    }
+
+    private record PlacedLava(UUID playerId, long placedAt) {
+    }
+}
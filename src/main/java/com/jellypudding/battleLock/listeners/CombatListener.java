@@ -3,69 +3,134 @@ package com.jellypudding.battleLock.listeners;
 import com.jellypudding.battleLock.BattleLock;
 import com.jellypudding.battleLock.managers.CombatManager;
 import com.jellypudding.battleLock.managers.CombatLogManager;
+import org.bukkit.Material;
+import org.bukkit.entity.AreaEffectCloud;
 import org.bukkit.entity.Entity;
+import org.bukkit.entity.EntityType;
+import org.bukkit.entity.LivingEntity;
 import org.bukkit.entity.Player;
-import org.bukkit.entity.Projectile;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
+import org.bukkit.event.entity.AreaEffectCloudApplyEvent;
 import org.bukkit.event.entity.EntityDamageByEntityEvent;
+import org.bukkit.event.entity.EntityDamageEvent;
 import org.bukkit.event.entity.EntityDeathEvent;
-import org.bukkit.projectiles.ProjectileSource;
+import org.bukkit.event.entity.PotionSplashEvent;
+import org.bukkit.event.player.PlayerBucketEmptyEvent;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 
 public class CombatListener implements Listener {
 
     private final BattleLock plugin;
     private final CombatManager combatManager;
+    private final AttackerResolver attackerResolver;
 
     public CombatListener(BattleLock plugin, CombatManager combatManager) {
         this.plugin = plugin;
         this.combatManager = combatManager;
+        this.attackerResolver = new AttackerResolver(plugin);
     }
 
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
     public void onEntityDamageByEntity(EntityDamageByEntityEvent event) {
         if (!(event.getEntity() instanceof Player victim)) {
+            if (event.getEntityType() == EntityType.END_CRYSTAL) {
+                attackerResolver.recordCrystalHit(event.getEntity(), event.getDamager());
+                return;
+            }
+
             // Check if the damaged entity is a combat log NPC.
             CombatLogManager combatLogManager = plugin.getCombatLogManager();
-            if (combatLogManager.isCombatLogNPC(event.getEntity().getEntityId())) {
+            if (combatLogManager.isCombatLogNPC(event.getEntity())) {
+                double healthAfterDamage = ((org.bukkit.entity.LivingEntity) event.getEntity()).getHealth() - event.getFinalDamage();
                 // If it's a killing blow, handle NPC death.
-                if (event.getFinalDamage() >= ((org.bukkit.entity.LivingEntity) event.getEntity()).getHealth()) {
-                    combatLogManager.handleNPCDeath(event.getEntity().getEntityId());
+                if (healthAfterDamage <= 0) {
+                    combatLogManager.handleNPCDeath(event.getEntity());
+                } else {
+                    combatLogManager.handleNPCDamage(event.getEntity(), healthAfterDamage);
                 }
             }
             return;
         }
 
-        // Get the attacker
-        Entity damager = event.getDamager();
-        Player attacker = null;
-
-        // Direct player attack
-        if (damager instanceof Player) {
-            attacker = (Player) damager;
-        }
-        // Projectile attack (arrows, etc.)
-        else if (damager instanceof Projectile) {
-            ProjectileSource source = ((Projectile) damager).getShooter();
-            if (source instanceof Player) {
-                attacker = (Player) source;
+        // Get whoever is behind the damager - a player, or a mob if nobody is
+        Entity responsible = attackerResolver.resolve(event.getDamager());
+        if (!(responsible instanceof Player attacker)) {
+            if (plugin.getSettings().mobTagging().contains(responsible.getType()) && !isBypassing(victim)) {
+                combatManager.tagPlayer(victim);
             }
+            return;
         }
 
         // If it's PvP combat, tag both players
-        if (attacker != null && !attacker.equals(victim)) {
-            boolean bypassAllowed = plugin.getConfig().getBoolean("allow-bypass", true);
+        if (!attacker.equals(victim)) {
+            if (isBypassing(attacker) || isBypassing(victim)) {
+                return;
+            }
+
+            combatManager.tagPlayers(attacker, victim);
+        }
+    }
 
-            if (bypassAllowed && 
-                    attacker.hasPermission("battlelock.bypass") ||
-                    victim.hasPermission("battlelock.bypass")) return;
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onEntityDamage(EntityDamageEvent event) {
+        if (event.getCause() != EntityDamageEvent.DamageCause.LAVA || !(event.getEntity() instanceof Player victim)) {
+            return;
+        }
 
-            combatManager.tagPlayer(victim);
-            combatManager.tagPlayer(attacker);
+        Player attacker = attackerResolver.lavaPlacer(victim);
+        if (attacker != null && !attacker.equals(victim) && !isBypassing(attacker) && !isBypassing(victim)) {
+            combatManager.tagPlayers(attacker, victim);
         }
     }
 
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBucketEmpty(PlayerBucketEmptyEvent event) {
+        if (event.getBucket() == Material.LAVA_BUCKET) {
+            attackerResolver.recordLava(event.getPlayer(), event.getBlock());
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPotionSplash(PotionSplashEvent event) {
+        if (AttackerResolver.isHarmful(event.getPotion().getEffects())) {
+            tagAffected(event.getPotion(), event.getAffectedEntities());
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onAreaEffectCloudApply(AreaEffectCloudApplyEvent event) {
+        AreaEffectCloud cloud = event.getEntity();
+        if (AttackerResolver.isHarmful(cloud)) {
+            tagAffected(cloud, event.getAffectedEntities());
+        }
+    }
+
+    /**
+     * Tag everyone hit by an area effect together with its thrower, resolving the thrower only once
+     */
+    private void tagAffected(Entity source, Collection<LivingEntity> affected) {
+        if (!(attackerResolver.resolve(source) instanceof Player attacker) || isBypassing(attacker)) {
+            return;
+        }
+
+        List<Player> victims = new ArrayList<>();
+        for (LivingEntity entity : affected) {
+            if (entity instanceof Player victim && !victim.equals(attacker) && !isBypassing(victim)) {
+                victims.add(victim);
+            }
+        }
+        combatManager.tagPlayers(attacker, victims);
+    }
+
+    private boolean isBypassing(Player player) {
+        return plugin.getPermissionCache().isBypassing(player);
+    }
+
     @EventHandler(priority = EventPriority.MONITOR)
     public void onEntityDeath(EntityDeathEvent event) {
         // If a player dies, remove their combat tag
@@ -75,8 +140,13 @@ public class CombatListener implements Listener {
 
         // Check if a combat log NPC was killed.
         CombatLogManager combatLogManager = plugin.getCombatLogManager();
-        if (combatLogManager.isCombatLogNPC(event.getEntity().getEntityId())) {
-            combatLogManager.handleNPCDeath(event.getEntity().getEntityId());
+        if (event.getEntity().getPersistentDataContainer().has(combatLogManager.getCombatLogKey())) {
+            // The displayed equipment is only a copy, the real items are dropped by the manager
+            event.getDrops().clear();
+            event.setDroppedExp(0);
+        }
+        if (combatLogManager.isCombatLogNPC(event.getEntity())) {
+            combatLogManager.handleNPCDeath(event.getEntity());
         }
     }
 }
@@ -1,33 +1,44 @@
 package com.jellypudding.battleLock.listeners;
 
 import com.jellypudding.battleLock.BattleLock;
+import com.jellypudding.battleLock.config.MessageKey;
+import com.jellypudding.battleLock.config.Settings;
+import com.jellypudding.battleLock.jfr.CommandFilterEvent;
 import com.jellypudding.battleLock.managers.CombatManager;
-import net.kyori.adventure.text.Component;
-import net.kyori.adventure.text.format.NamedTextColor;
+import com.jellypudding.battleLock.util.CommandMatcher;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandMap;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.player.PlayerCommandPreprocessEvent;
+import org.bukkit.event.server.ServerLoadEvent;
 
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 
 public class CommandListener implements Listener {
 
     private final BattleLock plugin;
     private final CombatManager combatManager;
-    private final List<String> allowedCommands;
+    private volatile CompiledAllowList allowList;
 
     public CommandListener(BattleLock plugin, CombatManager combatManager) {
         this.plugin = plugin;
         this.combatManager = combatManager;
+        this.allowList = compile(plugin.getSettings());
+    }
 
-        // Load allowed commands from config
-        List<String> configAllowedCommands = plugin.getConfig().getStringList("allowed-commands");
-        this.allowedCommands = configAllowedCommands.isEmpty()
-                ? new ArrayList<>(List.of("tell", "msg", "r", "me"))
-                : configAllowedCommands;
+    @EventHandler
+    public void onServerLoad(ServerLoadEvent event) {
+        // Other plugins have registered their commands and aliases by now
+        this.allowList = compile(plugin.getSettings());
     }
 
     @EventHandler(priority = EventPriority.LOWEST)
@@ -36,19 +47,91 @@ public class CommandListener implements Listener {
 
         // Check if player is in combat
         if (combatManager.isPlayerTagged(player)) {
-            String command = event.getMessage().substring(1).split(" ")[0].toLowerCase();
+            CommandFilterEvent filterEvent = new CommandFilterEvent();
+            filterEvent.begin();
 
-            // Allow specific whitelisted commands
-            for (String allowedCommand : allowedCommands) {
-                if (command.equals(allowedCommand)) {
-                    return;
-                }
+            String message = event.getMessage();
+            boolean allowed = isAllowed(player, message, filterEvent);
+            if (filterEvent.shouldCommit()) {
+                int end = message.indexOf(' ');
+                filterEvent.playerId = player.getUniqueId().toString();
+                filterEvent.command = end < 0 ? message : message.substring(0, end);
+                filterEvent.allowed = allowed;
+                filterEvent.commit();
+            }
+
+            if (allowed) {
+                return;
             }
 
             // Block all other commands
             event.setCancelled(true);
-            player.sendMessage(Component.text("You cannot use commands while in combat. Time remaining: " +
-                    combatManager.getTimeUntilTagExpires(player) + "s", NamedTextColor.RED));
+            plugin.getSettings().messages().send(player, MessageKey.COMMAND_BLOCKED,
+                    Integer.toString(combatManager.getTimeUntilTagExpires(player)));
+        }
+    }
+
+    private boolean isAllowed(Player player, String message, CommandFilterEvent filterEvent) {
+        CompiledAllowList compiled = allowList;
+        Settings settings = plugin.getSettings();
+        if (compiled.settings() != settings) {
+            // The settings were reloaded since the lists were compiled
+            compiled = compile(settings);
+            this.allowList = compiled;
         }
+
+        // Allow specific whitelisted commands
+        if (compiled.commands().matchesCommand(message)) {
+            return true;
+        }
+        List<PermissionAllowList> groups = compiled.permissionGroups();
+        for (int i = 0; i < groups.size(); i++) {
+            PermissionAllowList group = groups.get(i);
+            if (group.commands().matchesCommand(message)) {
+                filterEvent.permissionChecks++;
+                if (plugin.getPermissionCache().hasAllowListGroup(player, i, group.permission())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Compile the allow lists, expanding each command to all of its registered aliases and namespaced labels
+     */
+    private CompiledAllowList compile(Settings settings) {
+        Map<Command, List<String>> labelsByCommand = new IdentityHashMap<>();
+        CommandMap commandMap = plugin.getServer().getCommandMap();
+        for (Map.Entry<String, Command> entry : commandMap.getKnownCommands().entrySet()) {
+            labelsByCommand.computeIfAbsent(entry.getValue(), command -> new ArrayList<>()).add(entry.getKey());
+        }
+
+        List<PermissionAllowList> groups = new ArrayList<>();
+        for (Map.Entry<String, List<String>> entry : settings.permissionAllowedCommands().entrySet()) {
+            groups.add(new PermissionAllowList(entry.getKey(), resolve(entry.getValue(), commandMap, labelsByCommand)));
+        }
+
+        return new CompiledAllowList(settings, resolve(settings.allowedCommands(), commandMap, labelsByCommand), List.copyOf(groups));
+    }
+
+    private CommandMatcher resolve(List<String> names, CommandMap commandMap, Map<Command, List<String>> labelsByCommand) {
+        Set<String> labels = new HashSet<>();
+        for (String name : names) {
+            String label = name.toLowerCase(Locale.ROOT);
+            labels.add(label);
+
+            Command command = commandMap.getCommand(label);
+            if (command != null) {
+                labels.addAll(labelsByCommand.getOrDefault(command, List.of()));
+            }
+        }
+        return CommandMatcher.of(labels);
+    }
+
+    private record PermissionAllowList(String permission, CommandMatcher commands) {
+    }
+
+    private record CompiledAllowList(Settings settings, CommandMatcher commands, List<PermissionAllowList> permissionGroups) {
     }
 }
@@ -1,14 +1,20 @@
 package com.jellypudding.battleLock.listeners;
 
 import com.jellypudding.battleLock.BattleLock;
+import com.jellypudding.battleLock.config.MessageKey;
 import com.jellypudding.battleLock.managers.CombatManager;
 import com.jellypudding.battleLock.managers.CombatLogManager;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
+import org.bukkit.event.player.PlayerCommandSendEvent;
 import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerMoveEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.player.PlayerTeleportEvent;
 
 public class PlayerListener implements Listener {
 
@@ -25,14 +31,67 @@ public class PlayerListener implements Listener {
     @EventHandler(priority = EventPriority.MONITOR)
     public void onPlayerQuit(PlayerQuitEvent event) {
         Player player = event.getPlayer();
+        plugin.getCombatTimer().remove(player);
 
         // Check if player is in combat
         if (combatManager.isPlayerTagged(player)) {
-            // Player is combat logging - create a combat log NPC
-            combatLogManager.createCombatLogNPC(player);
+            int safeLogoutRadius = plugin.getSettings().safeLogoutRadius();
+            if (safeLogoutRadius > 0 && !combatManager.hasOpponentWithin(player, safeLogoutRadius)) {
+                plugin.getLogger().info(player.getName() + " logged out during combat with no opponent within " +
+                        safeLogoutRadius + " blocks, no NPC was created");
+            } else {
+                // Player is combat logging - create a combat log NPC
+                combatLogManager.createCombatLogNPC(player);
 
-            plugin.getLogger().info(player.getName() + " logged out during combat and will be punished if their NPC is killed");
+                plugin.getLogger().info(player.getName() + " logged out during combat and will be punished if their NPC is killed");
+            }
         }
+        combatManager.handleQuit(player.getUniqueId());
+        plugin.getPermissionCache().remove(player.getUniqueId());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPlayerMove(PlayerMoveEvent event) {
+        // Combatant positions only need block precision
+        if (event.hasChangedBlock()) {
+            combatManager.handleMove(event.getPlayer(), event.getTo());
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPlayerTeleport(PlayerTeleportEvent event) {
+        combatManager.handleMove(event.getPlayer(), event.getTo());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onAsyncPlayerPreLogin(AsyncPlayerPreLoginEvent event) {
+        // Resolve the punishment status off the main thread so the join handler only reads the result
+        if (event.getLoginResult() == AsyncPlayerPreLoginEvent.Result.ALLOWED) {
+            plugin.getDataManager().prefetch(event.getUniqueId());
+
+            // Without the records a player whose NPC was killed would keep their items
+            if (!plugin.getDataManager().isAvailable()) {
+                event.disallow(AsyncPlayerPreLoginEvent.Result.KICK_OTHER,
+                        plugin.getSettings().messages().render(MessageKey.STORAGE_UNAVAILABLE));
+            }
+        }
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onPlayerJoinEarly(PlayerJoinEvent event) {
+        plugin.getPermissionCache().refresh(event.getPlayer());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerChangedWorld(PlayerChangedWorldEvent event) {
+        // Permissions may be per world
+        plugin.getPermissionCache().refresh(event.getPlayer());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerCommandSend(PlayerCommandSendEvent event) {
+        // The command list is resent whenever a player's permissions are recalculated
+        plugin.getPermissionCache().refresh(event.getPlayer());
     }
 
     @EventHandler(priority = EventPriority.MONITOR)
@@ -0,0 +1,38 @@
+package com.jellypudding.battleLock.listeners;
+
+import com.jellypudding.battleLock.managers.CombatLogManager;
+import org.bukkit.Chunk;
+import org.bukkit.entity.Entity;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.world.EntitiesLoadEvent;
+import org.bukkit.event.world.EntitiesUnloadEvent;
+
+public class WorldListener implements Listener {
+
+    private final CombatLogManager combatLogManager;
+
+    public WorldListener(CombatLogManager combatLogManager) {
+        this.combatLogManager = combatLogManager;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onEntitiesLoad(EntitiesLoadEvent event) {
+        // Remove NPC copies that were saved with their chunk but are no longer tracked (e.g. after a crash)
+        for (Entity entity : event.getEntities()) {
+            combatLogManager.removeIfStale(entity);
+        }
+
+        // Give NPCs parked while the chunk was unloaded their bodies back
+        Chunk chunk = event.getChunk();
+        combatLogManager.respawnParked(chunk.getWorld(), chunk.getX(), chunk.getZ());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onEntitiesUnload(EntitiesUnloadEvent event) {
+        for (Entity entity : event.getEntities()) {
+            combatLogManager.parkIfNPC(entity);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.jellypudding.battleLock.managers;
+
+import com.jellypudding.battleLock.BattleLock;
+import com.jellypudding.battleLock.api.CombatEvent;
+import com.jellypudding.battleLock.config.EventOverflow;
+import com.jellypudding.battleLock.util.RingBuffer;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Publishes combat events to {@link Flow} subscribers without ever holding up the thread that produced them.
+ * <p>
+ * Producers only add the event to a lock-free ring buffer - and skip even that while nobody is subscribed.
+ * A dispatcher thread drains the buffer into a {@link SubmissionPublisher}, which gives each subscriber
+ * its own bounded buffer and delivers on a worker pool. When a subscriber falls behind, the configured
+ * overflow policy either drops its events or makes the dispatcher wait; if the ring buffer itself fills
+ * up meanwhile, new events are dropped rather than blocking the tick.
+ */
+public class CombatEventStream implements Flow.Publisher<CombatEvent> {
+
+    private static final int RING_CAPACITY = 4096;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100); // Also how often subscribers are re-checked
+
+    private final BattleLock plugin;
+    private final RingBuffer<CombatEvent> ring;
+    private final ExecutorService workers;
+    private final SubmissionPublisher<CombatEvent> publisher;
+    private final AtomicLong droppedEvents;
+    private final Thread dispatcher;
+    private volatile boolean active; // Whether anyone is subscribed, refreshed by the dispatcher
+    private volatile boolean parked;
+    private volatile boolean running;
+
+    public CombatEventStream(BattleLock plugin) {
+        this.plugin = plugin;
+        this.ring = new RingBuffer<>(RING_CAPACITY);
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.workers = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "BattleLock-EventStream-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.publisher = new SubmissionPublisher<>(workers, plugin.getSettings().eventStreamBuffer()); // Resizing needs a restart
+        this.droppedEvents = new AtomicLong();
+        this.dispatcher = new Thread(this::dispatch, "BattleLock-EventDispatcher");
+        this.dispatcher.setDaemon(true);
+    }
+
+    /**
+     * Start the dispatcher thread
+     */
+    public void start() {
+        if (!running) {
+            running = true;
+            dispatcher.start();
+        }
+    }
+
+    /**
+     * Deliver what is still buffered, then complete every subscription
+     */
+    public void shutdown() {
+        if (!running) {
+            return;
+        }
+
+        running = false;
+        LockSupport.unpark(dispatcher);
+        try {
+            dispatcher.join(TimeUnit.SECONDS.toMillis(2));
+            if (dispatcher.isAlive()) {
+                dispatcher.interrupt(); // Stuck waiting for a blocking subscriber
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        publisher.close();
+        workers.shutdown();
+
+        long dropped = droppedEvents.get();
+        if (dropped > 0) {
+            plugin.getLogger().warning(dropped + " combat events were dropped because subscribers could not keep up");
+        }
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super CombatEvent> subscriber) {
+        publisher.subscribe(subscriber);
+        active = true;
+    }
+
+    /**
+     * Queue an event for the subscribers. Never blocks, safe to call from any thread.
+     *
+     * @param event The event
+     */
+    public void publish(CombatEvent event) {
+        if (!active || !running) {
+            return;
+        }
+
+        if (!ring.offer(event)) {
+            droppedEvents.incrementAndGet();
+        } else if (parked) {
+            LockSupport.unpark(dispatcher);
+        }
+    }
+
+    /**
+     * Get the number of events dropped so far because the buffers were full
+     *
+     * @return The number of dropped events
+     */
+    public long getDroppedEvents() {
+        return droppedEvents.get();
+    }
+
+    private void dispatch() {
+        while (running || !ring.isEmpty()) {
+            CombatEvent event = ring.poll();
+            if (event == null) {
+                parked = true;
+                // Re-check after announcing the park, so an event offered in between is not missed
+                if (running && ring.isEmpty()) {
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                }
+                parked = false;
+                active = publisher.hasSubscribers();
+                continue;
+            }
+
+            if (plugin.getSettings().eventStreamOverflow() == EventOverflow.BLOCK) {
+                try {
+                    publisher.submit(event);
+                } catch (IllegalStateException e) {
+                    return; // Closed while waiting
+                }
+            } else {
+                publisher.offer(event, (subscriber, dropped) -> {
+                    droppedEvents.incrementAndGet();
+                    return false;
+                });
+            }
+        }
+    }
+}
@@ -1,37 +1,76 @@
 package com.jellypudding.battleLock.managers;
 
 import com.jellypudding.battleLock.BattleLock;
+import com.jellypudding.battleLock.api.CombatEvent;
+import com.jellypudding.battleLock.config.MessageKey;
+import com.jellypudding.battleLock.config.NpcBody;
+import com.jellypudding.battleLock.events.CombatLogNpcKillEvent;
+import com.jellypudding.battleLock.events.CombatLogNpcSpawnEvent;
+import com.jellypudding.battleLock.events.CombatLogPunishmentEvent;
+import com.jellypudding.battleLock.jfr.NpcLifecycleEvent;
+import com.jellypudding.battleLock.storage.ItemCodec;
+import com.jellypudding.battleLock.storage.NpcSnapshot;
+import com.jellypudding.battleLock.storage.NpcSnapshotStore;
+import io.papermc.paper.datacomponent.item.ResolvableProfile;
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
 import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
 import org.bukkit.Location;
 import org.bukkit.NamespacedKey;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
 import org.bukkit.entity.EntityType;
+import org.bukkit.entity.LivingEntity;
+import org.bukkit.entity.Mannequin;
 import org.bukkit.entity.Player;
 import org.bukkit.entity.Villager;
+import org.bukkit.inventory.EntityEquipment;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.persistence.PersistentDataType;
 import org.bukkit.potion.PotionEffect;
 import org.bukkit.potion.PotionEffectType;
 import net.kyori.adventure.text.Component;
-import net.kyori.adventure.text.format.NamedTextColor;
 
-import java.util.HashMap;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
-
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+/**
+ * Spawns, tracks and removes combat log NPCs.
+ * Bookkeeping is thread-safe; anything touching an NPC entity runs on the region that owns it,
+ * so this works on Folia as well as Paper.
+ */
 public class CombatLogManager {
 
+    private static final long SNAPSHOT_INTERVAL = 100L; // Ticks between NPC snapshots
+    private static final int BOOTS_SLOT = 36; // Player inventory slots 36-39 hold the armour, boots first
+    private static final int OFF_HAND_SLOT = 40;
+
     private final BattleLock plugin;
     private final CombatManager combatManager;
     private final DataManager dataManager;
-    private final Map<UUID, Integer> combatLogNPCs;
-    private final Map<Integer, UUID> entityPlayerMap;
-    private final Map<UUID, ItemStack[]> playerInventories;
-    private final Map<UUID, Boolean> processingNPCDeath;
-    private final Map<UUID, Integer> scheduledTasks; // Track scheduled despawn tasks
-    private final Map<UUID, Location> npcLocations; // Store NPC locations for item dropping
-    private final int logoutDespawnTime;
+    private final Map<UUID, CombatLogNPC> combatLogNPCs; // Player UUID -> NPC handle
+    private final Map<UUID, UUID> entityPlayerMap; // NPC entity UUID -> player UUID, for NPCs with a body
+    private final Map<ChunkPosition, Set<UUID>> parkedNPCs; // Unloaded chunk -> UUIDs of the players whose NPCs are parked there
+    private final PriorityQueue<CombatLogNPC> despawnQueue; // Guarded by itself, ordered by despawn deadline, then spawn order
     private final NamespacedKey combatLogKey;
+    private final NpcSnapshotStore snapshotStore;
+    private final DropQueue dropQueue;
+    private final AtomicLong spawnSequence;
+    private volatile List<NpcSnapshot> deferredSnapshots; // Saved NPCs waiting for the punishment records to load
+    private volatile boolean snapshotDirty;
+    private ScheduledTask despawnTask;
+    private ScheduledTask snapshotTask;
 
     public CombatLogManager(BattleLock plugin, CombatManager combatManager, DataManager dataManager) {
         this.plugin = plugin;
@@ -39,12 +78,75 @@ public class CombatLogManager {
         this.dataManager = dataManager;
         this.combatLogNPCs = new ConcurrentHashMap<>();
         this.entityPlayerMap = new ConcurrentHashMap<>();
-        this.playerInventories = new ConcurrentHashMap<>();
-        this.processingNPCDeath = new ConcurrentHashMap<>();
-        this.scheduledTasks = new ConcurrentHashMap<>();
-        this.npcLocations = new ConcurrentHashMap<>();
-        this.logoutDespawnTime = plugin.getConfig().getInt("combat-log-despawn-time", 30) * 20; // Convert to ticks
+        this.parkedNPCs = new ConcurrentHashMap<>();
+        this.despawnQueue = new PriorityQueue<>(Comparator
+                .comparingLong(CombatLogNPC::getDespawnAt)
+                .thenComparingLong(CombatLogNPC::getSequence));
         this.combatLogKey = new NamespacedKey(plugin, "combat_log_player_id");
+        this.snapshotStore = new NpcSnapshotStore(plugin.getDataFolder().toPath(), plugin.getLogger());
+        this.dropQueue = new DropQueue(plugin);
+        this.spawnSequence = new AtomicLong();
+        this.deferredSnapshots = List.of();
+    }
+
+    /**
+     * Restore the NPCs saved by the previous session and start the despawn and snapshot tasks
+     */
+    public void start() {
+        if (snapshotStore.beginSession()) {
+            plugin.getLogger().warning("BattleLock did not shut down cleanly, restoring combat log NPCs from the last snapshot.");
+        }
+        scheduleRestore(snapshotStore.load());
+        dropQueue.start();
+
+        if (despawnTask == null) {
+            despawnTask = plugin.getServer().getGlobalRegionScheduler().runAtFixedRate(plugin, task -> processDespawnQueue(), 1L, 1L);
+        }
+        if (snapshotTask == null) {
+            snapshotTask = plugin.getServer().getGlobalRegionScheduler().runAtFixedRate(plugin, task -> saveSnapshot(), SNAPSHOT_INTERVAL, SNAPSHOT_INTERVAL);
+        }
+    }
+
+    /**
+     * Save every live NPC and remove their entities (for plugin shutdown).
+     * The NPCs are restored with their remaining lifetime on the next start. Entities in regions
+     * this thread does not own (Folia) are left behind; bodies are not saved with their chunk, so they
+     * are gone once the chunk unloads.
+     */
+    public void shutdown() {
+        if (despawnTask != null) {
+            despawnTask.cancel();
+            despawnTask = null;
+        }
+        if (snapshotTask != null) {
+            snapshotTask.cancel();
+            snapshotTask = null;
+        }
+
+        snapshotStore.saveNow(buildSnapshots());
+
+        for (CombatLogNPC npc : combatLogNPCs.values()) {
+            World world = Bukkit.getWorld(npc.getWorldId());
+            if (world == null || !plugin.getServer().isOwnedByCurrentRegion(world, npc.getChunkX(), npc.getChunkZ())) {
+                continue;
+            }
+
+            Entity entity = findEntity(npc);
+            if (entity != null) {
+                entity.remove();
+            }
+        }
+
+        // Clear all tracking data
+        combatLogNPCs.clear();
+        entityPlayerMap.clear();
+        parkedNPCs.clear();
+        synchronized (despawnQueue) {
+            despawnQueue.clear();
+        }
+
+        dropQueue.shutdown();
+        snapshotStore.endSession();
     }
 
     /**
@@ -60,110 +162,375 @@ public class CombatLogManager {
             return;
         }
 
-        // Cancel any existing scheduled task for this player
-        if (scheduledTasks.containsKey(playerId)) {
-            Bukkit.getScheduler().cancelTask(scheduledTasks.get(playerId));
-            scheduledTasks.remove(playerId);
-        }
-
         Location location = player.getLocation();
 
-        // Store player inventory.
+        // Store player inventory, serialised once here so snapshots only copy bytes.
         ItemStack[] inventory = player.getInventory().getContents().clone();
-        playerInventories.put(playerId, inventory);
+        byte[] serializedInventory = ItemCodec.encode(inventory);
+
+        LivingEntity npc = spawnNPC(NpcLifecycleEvent.SPAWN, playerId, player.getName(), player.displayName(), location,
+                Math.min(player.getHealth(), 20.0), inventory, serializedInventory, System.currentTimeMillis() + plugin.getSettings().combatLogDespawnMillis());
+
+        plugin.getLogger().info(player.getName() + " logged out during combat! Created NPC at " +
+                location.getBlockX() + ", " + location.getBlockY() + ", " + location.getBlockZ());
+
+        plugin.getServer().getPluginManager().callEvent(new CombatLogNpcSpawnEvent(player, npc));
+        plugin.getEventStream().publish(CombatEvent.now(CombatEvent.Type.COMBAT_LOG, playerId, null));
+    }
+
+    /**
+     * Spawn and register an NPC entity - must run on the region owning the location
+     */
+    private LivingEntity spawnNPC(String action, UUID playerId, String playerName, Component displayName, Location location,
+                          double health, ItemStack[] inventory, byte[] serializedInventory, long despawnAt) {
+        NpcLifecycleEvent event = new NpcLifecycleEvent();
+        event.begin();
+
+        // Create an NPC at the given location
+        LivingEntity npc = spawnBody(location, playerId, playerName, displayName, health, inventory);
+
+        // Register the NPC and queue its despawn
+        CombatLogNPC handle = new CombatLogNPC(playerId, playerName, displayName, npc.getUniqueId(), npc.getLocation(), health,
+                inventory, serializedInventory, despawnAt, spawnSequence.getAndIncrement());
+        register(handle);
+        entityPlayerMap.put(npc.getUniqueId(), playerId);
+
+        if (event.shouldCommit()) {
+            event.action = action;
+            event.playerId = playerId.toString();
+            event.itemStacks = countStacks(inventory);
+            event.liveNpcs = combatLogNPCs.size();
+            event.commit();
+        }
+        return npc;
+    }
+
+    private void register(CombatLogNPC npc) {
+        combatLogNPCs.put(npc.getPlayerId(), npc);
+        synchronized (despawnQueue) {
+            despawnQueue.add(npc);
+        }
+        snapshotDirty = true;
+    }
 
-        // Create an NPC at the player's location
+    /**
+     * Spawn the body of an NPC. Bodies are never saved with their chunk: when the chunk unloads
+     * the NPC is parked as data and a new body is spawned once the chunk loads again.
+     */
+    private LivingEntity spawnBody(Location location, UUID playerId, String playerName, Component displayName,
+                                   double health, ItemStack[] inventory) {
+        return plugin.getSettings().npcBody() == NpcBody.VILLAGER
+                ? spawnVillager(location, playerId, displayName, health)
+                : spawnMannequin(location, playerId, playerName, displayName, health, inventory);
+    }
+
+    /**
+     * Spawn a mannequin wearing the player's skin and armour.
+     * Mannequins have no AI or brain to tick and are configured before they are added to the world.
+     */
+    private LivingEntity spawnMannequin(Location location, UUID playerId, String playerName, Component displayName,
+                                        double health, ItemStack[] inventory) {
+        return location.getWorld().spawn(location, Mannequin.class, npc -> {
+            npc.setProfile(ResolvableProfile.resolvableProfile().uuid(playerId).name(playerName).build());
+            npc.customName(displayName);
+            npc.setCustomNameVisible(true);
+            npc.setImmovable(true);
+            npc.setCollidable(false);
+            npc.setSilent(true);
+            npc.setPersistent(false);
+            npc.setHealth(health);
+
+            // Show the armour and off hand item - copies, the real items stay with the handle
+            EntityEquipment equipment = npc.getEquipment();
+            if (equipment != null && inventory.length > OFF_HAND_SLOT) {
+                equipment.setBoots(copy(inventory[BOOTS_SLOT]));
+                equipment.setLeggings(copy(inventory[BOOTS_SLOT + 1]));
+                equipment.setChestplate(copy(inventory[BOOTS_SLOT + 2]));
+                equipment.setHelmet(copy(inventory[BOOTS_SLOT + 3]));
+                equipment.setItemInOffHand(copy(inventory[OFF_HAND_SLOT]));
+            }
+            npc.getPersistentDataContainer().set(combatLogKey, PersistentDataType.STRING, playerId.toString());
+        });
+    }
+
+    private LivingEntity spawnVillager(Location location, UUID playerId, Component displayName, double health) {
         Villager npc = (Villager) location.getWorld().spawnEntity(location, EntityType.VILLAGER);
 
         // Setup the NPC with player data
-        npc.customName(player.displayName());
+        npc.customName(displayName);
         npc.setCustomNameVisible(true);
         npc.setAI(false);
         npc.setInvulnerable(false);
         npc.setSilent(true);
-        npc.setHealth(Math.min(player.getHealth(), 20.0));
+        npc.setPersistent(false);
+        npc.setHealth(health);
         npc.addPotionEffect(new PotionEffect(PotionEffectType.SLOWNESS, Integer.MAX_VALUE, 10, false, false));
         npc.getPersistentDataContainer().set(combatLogKey, PersistentDataType.STRING, playerId.toString());
+        return npc;
+    }
 
-        // Register the NPC
-        combatLogNPCs.put(playerId, npc.getEntityId());
-        entityPlayerMap.put(npc.getEntityId(), playerId);
-        npcLocations.put(playerId, npc.getLocation());
+    private static ItemStack copy(ItemStack item) {
+        return item == null ? null : item.clone();
+    }
 
-        // Schedule NPC removal and store the task ID
-        int taskId = Bukkit.getScheduler().scheduleSyncDelayedTask(plugin, () -> removeCombatLogNPC(playerId, false), logoutDespawnTime);
-        scheduledTasks.put(playerId, taskId);
+    /**
+     * Restore the NPCs of a previous session once the punishment records are loaded, without
+     * blocking the enabling thread. Until then they are kept in the snapshot.
+     *
+     * @param snapshots The saved NPCs
+     */
+    private void scheduleRestore(List<NpcSnapshot> snapshots) {
+        if (snapshots.isEmpty()) {
+            return;
+        }
 
-        plugin.getLogger().info(player.getName() + " logged out during combat! Created NPC at " +
-                location.getBlockX() + ", " + location.getBlockY() + ", " + location.getBlockZ());
+        // NPCs killed just before a crash may already have a punishment record
+        deferredSnapshots = snapshots;
+        dataManager.whenAvailable().thenRun(() -> {
+            if (plugin.isEnabled()) {
+                plugin.getServer().getGlobalRegionScheduler().execute(plugin, () -> {
+                    deferredSnapshots = List.of();
+                    restoreNPCs(snapshots);
+                });
+            }
+        });
     }
 
     /**
-     * Remove a combat log NPC
+     * Bring back the NPCs of a previous session. They start out parked: NPCs in loaded chunks are
+     * respawned on the region owning them, the rest when their chunk loads, so no chunk is loaded for them.
      *
-     * @param playerId The UUID of the player whose NPC should be removed
-     * @param died Whether the NPC died (true) or despawned naturally (false)
+     * @param snapshots The saved NPCs
      */
-    public void removeCombatLogNPC(UUID playerId, boolean died) {
-        if (!combatLogNPCs.containsKey(playerId)) {
+    private void restoreNPCs(List<NpcSnapshot> snapshots) {
+        long now = System.currentTimeMillis();
+
+        for (NpcSnapshot snapshot : snapshots) {
+            World world = Bukkit.getWorld(snapshot.worldId());
+            if (world == null) {
+                plugin.getLogger().warning("Could not restore the combat log NPC of " + snapshot.playerName() + ", its world is not loaded");
+                continue;
+            }
+            if (dataManager.wasNpcKilled(snapshot.playerId())) {
+                continue;
+            }
+
+            ItemStack[] inventory;
+            try {
+                inventory = ItemCodec.decode(snapshot.inventory());
+            } catch (IOException | RuntimeException e) {
+                plugin.getLogger().log(Level.SEVERE, "Could not restore the inventory of " + snapshot.playerName() + "'s combat log NPC", e);
+                continue;
+            }
+
+            NpcLifecycleEvent event = new NpcLifecycleEvent();
+            event.begin();
+
+            Location location = new Location(world, snapshot.x(), snapshot.y(), snapshot.z(), snapshot.yaw(), snapshot.pitch());
+            long despawnAt = now + Math.max(0L, snapshot.remainingMillis());
+            CombatLogNPC npc = new CombatLogNPC(snapshot.playerId(), snapshot.playerName(), Component.text(snapshot.playerName()),
+                    snapshot.entityId(), location, snapshot.health(), inventory, snapshot.inventory(), despawnAt,
+                    spawnSequence.getAndIncrement());
+            register(npc);
+            park(npc);
+
+            int chunkX = npc.getChunkX();
+            int chunkZ = npc.getChunkZ();
+            if (world.isChunkLoaded(chunkX, chunkZ)) {
+                plugin.getServer().getRegionScheduler().execute(plugin, world, chunkX, chunkZ, () -> respawnParked(world, chunkX, chunkZ));
+            }
+
+            if (event.shouldCommit()) {
+                event.action = NpcLifecycleEvent.RESTORE;
+                event.playerId = snapshot.playerId().toString();
+                event.itemStacks = countStacks(inventory);
+                event.liveNpcs = combatLogNPCs.size();
+                event.commit();
+            }
+        }
+
+        plugin.getLogger().info("Restoring " + snapshots.size() + " combat log NPCs from the previous session.");
+    }
+
+    /**
+     * Park the NPC of an entity that is being unloaded with its chunk.
+     * The body is not saved with the chunk; the NPC is kept as data until the chunk loads again.
+     *
+     * @param entity An entity being unloaded
+     */
+    public void parkIfNPC(Entity entity) {
+        UUID playerId = entityPlayerMap.remove(entity.getUniqueId());
+        CombatLogNPC npc = playerId != null ? combatLogNPCs.get(playerId) : null;
+        if (npc == null) {
             return;
         }
 
-        // Cancel any scheduled task for this player
-        if (scheduledTasks.containsKey(playerId)) {
-            Bukkit.getScheduler().cancelTask(scheduledTasks.get(playerId));
-            scheduledTasks.remove(playerId);
+        NpcLifecycleEvent event = new NpcLifecycleEvent();
+        event.begin();
+
+        npc.updateLocation(entity.getLocation());
+        if (entity instanceof LivingEntity living) {
+            npc.setHealth(living.getHealth());
+        }
+        park(npc);
+        snapshotDirty = true;
+
+        if (event.shouldCommit()) {
+            event.action = NpcLifecycleEvent.PARK;
+            event.playerId = playerId.toString();
+            event.liveNpcs = combatLogNPCs.size();
+            event.commit();
         }
+    }
 
-        int entityId = combatLogNPCs.get(playerId);
+    private void park(CombatLogNPC npc) {
+        npc.setParked(true);
+        parkedNPCs.compute(new ChunkPosition(npc.getWorldId(), npc.getChunkKey()), (position, players) -> {
+            Set<UUID> parked = players != null ? players : ConcurrentHashMap.newKeySet();
+            parked.add(npc.getPlayerId());
+            return parked;
+        });
+    }
 
-        // Handle punishment FIRST (before entity cleanup) so it works for both live and dead entities
-        if (died && playerInventories.containsKey(playerId)) {
-            // Get drop location (prefer live entity, fallback to stored location)
-            Location dropLocation = null;
-            for (org.bukkit.entity.Entity entity : Bukkit.getWorlds().stream()
-                    .flatMap(world -> world.getEntities().stream())
-                    .filter(e -> e.getEntityId() == entityId)
-                    .toList()) {
-                dropLocation = entity.getLocation();
-                break;
+    /**
+     * Spawn new bodies for the NPCs parked in a chunk whose entities have just loaded.
+     * Only the parked NPCs of this chunk are looked at. Must run on the region owning the chunk.
+     *
+     * @param world The world of the chunk
+     * @param chunkX The chunk X coordinate
+     * @param chunkZ The chunk Z coordinate
+     */
+    public void respawnParked(World world, int chunkX, int chunkZ) {
+        if (parkedNPCs.isEmpty()) {
+            return;
+        }
+
+        Set<UUID> parked = parkedNPCs.remove(new ChunkPosition(world.getUID(), Chunk.getChunkKey(chunkX, chunkZ)));
+        if (parked == null) {
+            return;
+        }
+
+        for (UUID playerId : parked) {
+            CombatLogNPC npc = combatLogNPCs.get(playerId);
+            if (npc == null || !npc.isParked()) {
+                continue; // Removed while parked
             }
 
-            // Fallback to stored location if entity is gone (environmental deaths)
-            if (dropLocation == null) {
-                dropLocation = npcLocations.get(playerId);
+            NpcLifecycleEvent event = new NpcLifecycleEvent();
+            event.begin();
+
+            // A copy saved with its chunk by an older version or before a crash may already be loaded
+            Entity stale = Bukkit.getEntity(npc.getEntityId());
+            if (stale != null) {
+                stale.remove();
             }
 
-            // Drop items at the determined location
-            if (dropLocation != null) {
-                for (ItemStack item : playerInventories.get(playerId)) {
-                    if (item != null) {
-                        dropLocation.getWorld().dropItemNaturally(dropLocation, item);
-                    }
-                }
+            LivingEntity body = spawnBody(npc.getLocation(), playerId, npc.getPlayerName(), npc.getDisplayName(),
+                    npc.getHealth(), npc.getInventory());
+            npc.setEntityId(body.getUniqueId());
+            npc.setParked(false);
+            entityPlayerMap.put(body.getUniqueId(), playerId);
+
+            if (event.shouldCommit()) {
+                event.action = NpcLifecycleEvent.RESPAWN;
+                event.playerId = playerId.toString();
+                event.itemStacks = countStacks(npc.getInventory());
+                event.liveNpcs = combatLogNPCs.size();
+                event.commit();
             }
+        }
+    }
 
-            // Mark in persistent storage that this player's NPC was killed
-            dataManager.markNpcKilled(playerId);
+    /**
+     * Hand the current NPC state to the background writer, if anything has changed
+     */
+    private void saveSnapshot() {
+        if (!snapshotDirty && combatLogNPCs.isEmpty()) {
+            return;
+        }
+
+        snapshotDirty = false;
+        snapshotStore.saveAsync(buildSnapshots());
+    }
+
+    private List<NpcSnapshot> buildSnapshots() {
+        long now = System.currentTimeMillis();
+        List<NpcSnapshot> snapshots = new ArrayList<>(deferredSnapshots);
+
+        // Location and health are kept up to date by NPC events, so no entity is touched here
+        for (CombatLogNPC npc : combatLogNPCs.values()) {
+            Location location = npc.getLocation();
+            snapshots.add(new NpcSnapshot(npc.getPlayerId(), npc.getPlayerName(), npc.getEntityId(), npc.getWorldId(),
+                    location.getX(), location.getY(), location.getZ(), location.getYaw(), location.getPitch(),
+                    npc.getHealth(), npc.getDespawnAt() - now, npc.getSerializedInventory()));
         }
+        return snapshots;
+    }
 
-        // Remove entity if it still exists
-        for (org.bukkit.entity.Entity entity : Bukkit.getWorlds().stream()
-                .flatMap(world -> world.getEntities().stream())
-                .filter(e -> e.getEntityId() == entityId)
-                .toList()) {
-            entity.remove();
+    /**
+     * Remove a combat log NPC.
+     * The NPC is claimed atomically, so concurrent removals (e.g. a kill racing the owner's return)
+     * are processed exactly once. Entity work is carried out on the region owning the NPC.
+     *
+     * @param playerId The UUID of the player whose NPC should be removed
+     * @param died Whether the NPC died (true) or despawned naturally (false)
+     * @return True if this call removed the NPC, false if there was none
+     */
+    public boolean removeCombatLogNPC(UUID playerId, boolean died) {
+        CombatLogNPC npc = combatLogNPCs.remove(playerId);
+        if (npc == null) {
+            return false;
         }
 
         // Clean up all tracking data
-        combatLogNPCs.remove(playerId);
-        entityPlayerMap.remove(entityId);
-        playerInventories.remove(playerId);
-        processingNPCDeath.remove(playerId);
-        npcLocations.remove(playerId);
+        entityPlayerMap.remove(npc.getEntityId());
+        parkedNPCs.computeIfPresent(new ChunkPosition(npc.getWorldId(), npc.getChunkKey()), (position, players) -> {
+            players.remove(playerId);
+            return players.isEmpty() ? null : players;
+        });
+        snapshotDirty = true;
+
+        // Mark in persistent storage that this player's NPC was killed
+        if (died) {
+            dataManager.markNpcKilled(playerId);
+        }
+
+        runAtNPC(npc, () -> {
+            NpcLifecycleEvent event = new NpcLifecycleEvent();
+            event.begin();
+
+            // Resolve the entity once through the index - it may be gone already (environmental deaths, parked NPCs)
+            Entity entity = findEntity(npc, event);
+            if (entity != null) {
+                npc.updateLocation(entity.getLocation());
+            }
+            entityPlayerMap.remove(npc.getEntityId(), playerId); // In case the body was respawned while this was queued
+
+            // Handle punishment FIRST (before entity cleanup) so it works for both live and dead entities
+            if (died) {
+                // Queue the items at the last known location, they are dropped over the next ticks
+                Location dropLocation = npc.getLocation();
+                if (dropLocation.getWorld() != null) {
+                    dropQueue.submit(dropLocation, npc.getInventory(), npc.getPlayerName());
+                }
+            }
+
+            // Remove entity if it still exists
+            if (entity != null) {
+                entity.remove();
+            }
 
-        String playerName = Bukkit.getOfflinePlayer(playerId).getName();
-        plugin.getLogger().info(playerName + "'s combat log NPC has been " + (died ? "killed" : "despawned"));
+            if (event.shouldCommit()) {
+                event.action = died ? NpcLifecycleEvent.KILL : NpcLifecycleEvent.DESPAWN;
+                event.playerId = playerId.toString();
+                event.itemStacks = died ? countStacks(npc.getInventory()) : 0;
+                event.liveNpcs = combatLogNPCs.size();
+                event.commit();
+            }
+        });
+
+        plugin.getLogger().info(npc.getPlayerName() + "'s combat log NPC has been " + (died ? "killed" : "despawned"));
+        return true;
     }
 
     /**
@@ -173,46 +540,38 @@ public class CombatLogManager {
      */
     public void handlePlayerReturn(Player player) {
         UUID playerId = player.getUniqueId();
+        Boolean prefetchedKilled = dataManager.takePrefetched(playerId); // Normally resolved during pre-login
 
         // Check for active NPC in current session
-        if (combatLogNPCs.containsKey(playerId)) {
-            boolean wasKilled = !playerInventories.containsKey(playerId);
-            removeCombatLogNPC(playerId, false);
-
-            if (wasKilled) {
-                // NPC was killed, ensure inventory is cleared and remove combat tag.
-                player.getInventory().clear();
-                combatManager.untagPlayer(player);
-                player.sendMessage(Component.text("Your combat log NPC was killed while you were offline. You have lost your items.", NamedTextColor.RED));
-                plugin.getLogger().info(player.getName() + " lost items due to a killed combat log NPC.");
+        CombatLogNPC npc = combatLogNPCs.get(playerId);
+        if (npc != null && removeCombatLogNPC(playerId, false)) {
+            // NPC survived, return the stored inventory.
+            player.getInventory().clear(); // Clear first to prevent any potential duplication.
+            player.getInventory().setContents(npc.getInventory());
+
+            if (combatManager.isPlayerTagged(player)) {
+                int timeRemaining = combatManager.getTimeUntilTagExpires(player);
+                plugin.getSettings().messages().send(player, MessageKey.NPC_RETURNED_IN_COMBAT, Integer.toString(timeRemaining));
             } else {
-                // NPC survived, return inventory only if we have it stored.
-                ItemStack[] storedInventory = playerInventories.get(playerId);
-                if (storedInventory != null) {
-                    player.getInventory().clear(); // Clear first to prevent any potential duplication.
-                    player.getInventory().setContents(storedInventory);
-                }
-
-                if (combatManager.isPlayerTagged(player)) {
-                    int timeRemaining = combatManager.getTimeUntilTagExpires(player);
-                    player.sendMessage(Component.text("Your combat log NPC has been removed. You are still in combat for " + timeRemaining + " more seconds.", NamedTextColor.RED));
-                } else {
-                    player.sendMessage(Component.text("Your combat log NPC has been removed. You are no longer in combat and may log out safely.", NamedTextColor.GREEN));
-                }
+                plugin.getSettings().messages().send(player, MessageKey.NPC_RETURNED);
             }
             return;
         }
 
-        // Check for punishment record from previous server session
-        if (dataManager.wasNpcKilled(playerId)) {
+        // Check for a punishment record - from a previous session, or from an NPC killed while we were claiming it
+        boolean killedInPreviousSession = npc == null && prefetchedKilled != null ? prefetchedKilled : dataManager.wasNpcKilled(playerId);
+        if (killedInPreviousSession) {
             // NPC was killed in a previous session, clear their inventory
             player.getInventory().clear();
             combatManager.untagPlayer(player);
-            player.sendMessage(Component.text("Your combat log NPC was killed while you were offline. You have lost your items.", NamedTextColor.RED));
+            plugin.getSettings().messages().send(player, MessageKey.NPC_KILLED);
 
             // Remove the record now that it's been processed
             dataManager.removeKilledNpcRecord(playerId);
 
+            plugin.getServer().getPluginManager().callEvent(new CombatLogPunishmentEvent(player));
+            plugin.getEventStream().publish(CombatEvent.now(CombatEvent.Type.PUNISHMENT_APPLIED, playerId, null));
+
             plugin.getLogger().info(player.getName() + " lost items due to a killed combat log NPC (previous session).");
         }
     }
@@ -220,40 +579,89 @@ public class CombatLogManager {
     /**
      * Handle an NPC being damaged or killed
      *
-     * @param entityId The entity ID of the NPC
+     * @param entity The NPC entity
      */
-    public void handleNPCDeath(int entityId) {
-        if (!entityPlayerMap.containsKey(entityId)) {
+    public void handleNPCDeath(Entity entity) {
+        UUID playerId = entityPlayerMap.get(entity.getUniqueId());
+        if (playerId == null) {
             return;
         }
 
-        UUID playerId = entityPlayerMap.get(entityId);
+        CombatLogNPC npc = combatLogNPCs.get(playerId);
+        if (npc != null) {
+            npc.updateLocation(entity.getLocation());
+        }
 
-        // Prevent double processing using atomic check-and-set
-        if (processingNPCDeath.putIfAbsent(playerId, true) != null) {
-            return; // Already being processed
+        // Removal claims the NPC atomically, so a second death event is a no-op
+        if (removeCombatLogNPC(playerId, true) && npc != null) {
+            Player killer = entity instanceof LivingEntity living ? living.getKiller() : null;
+            plugin.getServer().getPluginManager().callEvent(new CombatLogNpcKillEvent(playerId, npc.getPlayerName(), entity, killer));
+            plugin.getEventStream().publish(CombatEvent.now(CombatEvent.Type.NPC_KILLED, playerId,
+                    killer != null ? killer.getUniqueId() : null));
         }
+    }
 
-        removeCombatLogNPC(playerId, true);
+    /**
+     * Record non-lethal damage to an NPC, keeping its saved health and location current
+     *
+     * @param entity The NPC entity
+     * @param healthAfterDamage The NPC's health once the damage is applied
+     */
+    public void handleNPCDamage(Entity entity, double healthAfterDamage) {
+        UUID playerId = entityPlayerMap.get(entity.getUniqueId());
+        CombatLogNPC npc = playerId != null ? combatLogNPCs.get(playerId) : null;
+        if (npc == null) {
+            return;
+        }
+
+        npc.updateLocation(entity.getLocation());
+        npc.setHealth(healthAfterDamage);
+        snapshotDirty = true;
     }
 
     /**
-     * Remove all combat log NPCs (for plugin shutdown)
+     * Despawn the NPCs whose lifetime is up, in deadline order.
+     * At most combat-log-despawn-per-tick NPCs are removed per tick, the rest carry over to the next tick.
      */
-    public void removeAllCombatLogs() {
-        // Cancel all scheduled tasks
-        for (int taskId : scheduledTasks.values()) {
-            Bukkit.getScheduler().cancelTask(taskId);
+    private void processDespawnQueue() {
+        long now = System.currentTimeMillis();
+        int despawnBudget = plugin.getSettings().combatLogDespawnPerTick();
+        List<CombatLogNPC> due = new ArrayList<>();
+
+        synchronized (despawnQueue) {
+            while (due.size() < despawnBudget) {
+                CombatLogNPC npc = despawnQueue.peek();
+                if (npc == null || npc.getDespawnAt() > now) {
+                    break;
+                }
+                despawnQueue.poll();
+
+                // NPCs that were killed or removed early leave a stale entry behind, skip those
+                if (combatLogNPCs.get(npc.getPlayerId()) == npc) {
+                    due.add(npc);
+                }
+            }
         }
 
-        // Create a copy to avoid ConcurrentModificationException
-        for (UUID playerId : new HashMap<>(combatLogNPCs).keySet()) {
-            removeCombatLogNPC(playerId, false);
+        for (CombatLogNPC npc : due) {
+            removeCombatLogNPC(npc.getPlayerId(), false);
         }
+    }
 
-        // Clear all tracking data
-        scheduledTasks.clear();
-        npcLocations.clear();
+    /**
+     * Run a task on the region owning an NPC - straight away if this thread already owns it
+     */
+    private void runAtNPC(CombatLogNPC npc, Runnable task) {
+        World world = Bukkit.getWorld(npc.getWorldId());
+        if (world == null) {
+            return;
+        }
+
+        if (plugin.getServer().isOwnedByCurrentRegion(world, npc.getChunkX(), npc.getChunkZ())) {
+            task.run();
+        } else {
+            plugin.getServer().getRegionScheduler().execute(plugin, world, npc.getChunkX(), npc.getChunkZ(), task);
+        }
     }
 
     /**
@@ -269,11 +677,84 @@ public class CombatLogManager {
     /**
      * Check if an entity is a combat log NPC
      *
-     * @param entityId The entity ID to check
+     * @param entity The entity to check
      * @return True if it's a combat log NPC, false otherwise
      */
-    public boolean isCombatLogNPC(int entityId) {
-        return entityPlayerMap.containsKey(entityId);
+    public boolean isCombatLogNPC(Entity entity) {
+        return entityPlayerMap.containsKey(entity.getUniqueId());
+    }
+
+    /**
+     * Get the combat log NPC of a player
+     *
+     * @param playerId The UUID of the player
+     * @return The NPC handle, or null if the player has none
+     */
+    public CombatLogNPC getCombatLogNPC(UUID playerId) {
+        return combatLogNPCs.get(playerId);
+    }
+
+    /**
+     * Get a combat log NPC by the UUID of its entity
+     *
+     * @param entityId The UUID of the entity
+     * @return The NPC handle, or null if the entity is not a combat log NPC
+     */
+    public CombatLogNPC getCombatLogNPCByEntity(UUID entityId) {
+        UUID playerId = entityPlayerMap.get(entityId);
+        return playerId != null ? combatLogNPCs.get(playerId) : null;
+    }
+
+    /**
+     * Get every live combat log NPC
+     *
+     * @return A read-only, weakly consistent view of the NPC handles
+     */
+    public Collection<CombatLogNPC> getCombatLogNPCs() {
+        return Collections.unmodifiableCollection(combatLogNPCs.values());
+    }
+
+    private Entity findEntity(CombatLogNPC npc) {
+        return findEntity(npc, new NpcLifecycleEvent());
+    }
+
+    /**
+     * Resolve the live entity of an NPC without scanning every loaded entity.
+     * Tries the server's UUID index first and falls back to the entities of the NPC's own chunk.
+     * Must be called on the region owning the NPC.
+     *
+     * @param npc The NPC handle
+     * @param event The event to record the number of scanned entities on
+     * @return The NPC entity, or null if it is gone or its chunk is not loaded
+     */
+    private Entity findEntity(CombatLogNPC npc, NpcLifecycleEvent event) {
+        Entity entity = Bukkit.getEntity(npc.getEntityId());
+        if (entity != null) {
+            return entity;
+        }
+
+        World world = Bukkit.getWorld(npc.getWorldId());
+        if (world == null || !world.isChunkLoaded(npc.getChunkX(), npc.getChunkZ())) {
+            return null;
+        }
+
+        for (Entity chunkEntity : world.getChunkAt(npc.getChunkX(), npc.getChunkZ()).getEntities()) {
+            event.entitiesScanned++;
+            if (chunkEntity.getUniqueId().equals(npc.getEntityId())) {
+                return chunkEntity;
+            }
+        }
+        return null;
+    }
+
+    private static int countStacks(ItemStack[] inventory) {
+        int stacks = 0;
+        for (ItemStack item : inventory) {
+            if (item != null) {
+                stacks++;
+            }
+        }
+        return stacks;
     }
 
     /**
@@ -284,4 +765,24 @@ public class CombatLogManager {
     public NamespacedKey getCombatLogKey() {
         return combatLogKey;
     }
+
+    /**
+     * Remove an entity marked as a combat log NPC that is no longer tracked,
+     * e.g. a copy saved with its chunk by an older version
+     *
+     * @param entity The entity to check
+     * @return True if the entity was a stale NPC and was removed, false otherwise
+     */
+    public boolean removeIfStale(Entity entity) {
+        if (!entity.getPersistentDataContainer().has(combatLogKey, PersistentDataType.STRING)
+                || entityPlayerMap.containsKey(entity.getUniqueId())) {
+            return false;
+        }
+
+        entity.remove();
+        return true;
+    }
+
+    private record ChunkPosition(UUID worldId, long chunkKey) {
+    }
 }
@@ -0,0 +1,145 @@
+package com.jellypudding.battleLock.managers;
+
+import net.kyori.adventure.text.Component;
+import org.bukkit.Chunk;
+import org.bukkit.Location;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.UUID;
+
+/**
+ * Tracking handle for a single combat log NPC.
+ * Entities are referenced by UUID and chunk rather than by their int entity ID,
+ * as entity IDs are reassigned whenever a chunk is reloaded.
+ * <p>
+ * The handle outlives its body: while the NPC's chunk is unloaded the NPC is parked as data,
+ * and a new body with a new entity UUID is spawned when the chunk loads again.
+ */
+public final class CombatLogNPC {
+
+    private final UUID playerId;
+    private final String playerName;
+    private final Component displayName;
+    private final UUID worldId;
+    private final ItemStack[] inventory;
+    private final byte[] serializedInventory;
+    private final long despawnAt;
+    private final long sequence;
+    private volatile UUID entityId; // Replaced whenever the body is respawned
+    private volatile boolean parked; // Whether the body is gone with its unloaded chunk
+    private volatile Location location; // Written on the NPC's region, read by the snapshot task
+    private volatile long chunkKey;
+    private volatile double health;
+
+    CombatLogNPC(UUID playerId, String playerName, Component displayName, UUID entityId, Location location, double health,
+                 ItemStack[] inventory, byte[] serializedInventory, long despawnAt, long sequence) {
+        this.playerId = playerId;
+        this.playerName = playerName;
+        this.displayName = displayName;
+        this.worldId = location.getWorld().getUID();
+        this.entityId = entityId;
+        this.inventory = inventory;
+        this.serializedInventory = serializedInventory;
+        this.despawnAt = despawnAt;
+        this.sequence = sequence;
+        this.health = health;
+        updateLocation(location);
+    }
+
+    /**
+     * Update the last known location of the NPC (and the chunk it is indexed under)
+     *
+     * @param location The new location
+     */
+    void updateLocation(Location location) {
+        this.chunkKey = Chunk.getChunkKey(location);
+        this.location = location.clone();
+    }
+
+    public UUID getPlayerId() {
+        return playerId;
+    }
+
+    public String getPlayerName() {
+        return playerName;
+    }
+
+    public Component getDisplayName() {
+        return displayName;
+    }
+
+    public UUID getWorldId() {
+        return worldId;
+    }
+
+    /**
+     * Get the UUID of the NPC's body. While the NPC is parked this is the UUID of its last body.
+     *
+     * @return The entity UUID
+     */
+    public UUID getEntityId() {
+        return entityId;
+    }
+
+    void setEntityId(UUID entityId) {
+        this.entityId = entityId;
+    }
+
+    /**
+     * Check if the NPC is parked, i.e. its chunk is unloaded and it has no body
+     *
+     * @return True if the NPC is parked, false if its body is in the world
+     */
+    public boolean isParked() {
+        return parked;
+    }
+
+    void setParked(boolean parked) {
+        this.parked = parked;
+    }
+
+    public Location getLocation() {
+        return location.clone();
+    }
+
+    public double getHealth() {
+        return health;
+    }
+
+    void setHealth(double health) {
+        this.health = health;
+    }
+
+    public long getChunkKey() {
+        return chunkKey;
+    }
+
+    public int getChunkX() {
+        return (int) chunkKey;
+    }
+
+    public int getChunkZ() {
+        return (int) (chunkKey >> 32);
+    }
+
+    /**
+     * Get the time at which the NPC despawns if nobody kills it
+     *
+     * @return The despawn deadline in epoch milliseconds
+     */
+    public long getDespawnAt() {
+        return despawnAt;
+    }
+
+    long getSequence() {
+        return sequence;
+    }
+
+    ItemStack[] getInventory() {
+        return inventory;
+    }
+
+    byte[] getSerializedInventory() {
+        return serializedInventory;
+    }
+}
@@ -1,24 +1,110 @@
 package com.jellypudding.battleLock.managers;
 
 import com.jellypudding.battleLock.BattleLock;
-import net.kyori.adventure.text.Component;
-import net.kyori.adventure.text.format.NamedTextColor;
+import com.jellypudding.battleLock.api.CombatEvent;
+import com.jellypudding.battleLock.config.MessageKey;
+import com.jellypudding.battleLock.events.PlayerCombatTagEvent;
+import com.jellypudding.battleLock.events.PlayerCombatUntagEvent;
+import com.jellypudding.battleLock.jfr.CombatTagEvent;
+import com.jellypudding.battleLock.util.TimingWheel;
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+import org.bukkit.Location;
 import org.bukkit.entity.Player;
+import org.bukkit.event.Event;
 
-import java.util.HashMap;
+import java.util.Collection;
 import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.ObjLongConsumer;
 
+/**
+ * Tracks which players are in combat.
+ * Tag queries and updates are lock-free and may be called from any thread; expiry is driven by
+ * a timing wheel that only the repeating expiry task touches.
+ */
 public class CombatManager {
 
+    private static final long WHEEL_TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(50); // One server tick
+
     private final BattleLock plugin;
-    private final Map<UUID, Long> taggedPlayers;
-    private final int combatTagDuration;
+    private final CombatTagTable taggedPlayers;
+    private final CombatantIndex combatants; // Positions of tagged online players
+    private final Map<UUID, Set<UUID>> opponents; // Player UUID -> players they fought during their current tag
+    private final TimingWheel<UUID> expiryWheel; // Only touched by the expiry task
+    private final Queue<ScheduledExpiry> pendingExpiries; // Deadlines waiting to be put on the wheel
+    private ScheduledTask expiryTask;
 
     public CombatManager(BattleLock plugin) {
         this.plugin = plugin;
-        this.taggedPlayers = new HashMap<>();
-        this.combatTagDuration = plugin.getConfig().getInt("combat-tag-duration", 15) * 1000; // Convert to milliseconds
+        this.taggedPlayers = new CombatTagTable();
+        this.combatants = new CombatantIndex();
+        this.opponents = new ConcurrentHashMap<>();
+        this.expiryWheel = new TimingWheel<>(WHEEL_TICK_NANOS, System.nanoTime());
+        this.pendingExpiries = new ConcurrentLinkedQueue<>();
+    }
+
+    /**
+     * Start the repeating task that expires combat tags
+     */
+    public void start() {
+        if (expiryTask == null) {
+            expiryTask = plugin.getServer().getGlobalRegionScheduler().runAtFixedRate(plugin, task -> expireTags(), 1L, 1L);
+        }
+    }
+
+    /**
+     * Stop the expiry task and forget all combat tags
+     */
+    public void shutdown() {
+        if (expiryTask != null) {
+            expiryTask.cancel();
+            expiryTask = null;
+        }
+
+        pendingExpiries.clear();
+        expiryWheel.clear();
+        taggedPlayers.clear();
+        combatants.clear();
+        opponents.clear();
+    }
+
+    /**
+     * Tag two players who are fighting each other and remember them as opponents
+     *
+     * @param attacker The attacking player
+     * @param victim The player who was hit
+     */
+    public void tagPlayers(Player attacker, Player victim) {
+        tag(victim, attacker);
+        tag(attacker, victim);
+        addOpponent(victim.getUniqueId(), attacker.getUniqueId());
+        addOpponent(attacker.getUniqueId(), victim.getUniqueId());
+    }
+
+    /**
+     * Tag a player together with everyone they hit at once, e.g. with a splash potion
+     *
+     * @param attacker The attacking player
+     * @param victims The players who were hit
+     */
+    public void tagPlayers(Player attacker, Collection<? extends Player> victims) {
+        if (victims.isEmpty()) {
+            return;
+        }
+
+        UUID attackerId = attacker.getUniqueId();
+        for (Player victim : victims) {
+            tag(victim, attacker);
+            addOpponent(victim.getUniqueId(), attackerId);
+            addOpponent(attackerId, victim.getUniqueId());
+        }
+        tag(attacker, victims.iterator().next());
     }
 
     /**
@@ -27,13 +113,34 @@ public class CombatManager {
      * @param player The player to tag
      */
     public void tagPlayer(Player player) {
+        tag(player, null);
+    }
+
+    private void tag(Player player, Player opponent) {
+        CombatTagEvent event = new CombatTagEvent();
+        event.begin();
+
         UUID playerId = player.getUniqueId();
-        boolean wasTagged = isPlayerTagged(player);
+        long now = System.nanoTime();
+        boolean wasTagged = taggedPlayers.isTagged(playerId, now);
 
-        taggedPlayers.put(playerId, System.currentTimeMillis() + combatTagDuration);
+        long deadline = taggedPlayers.tag(playerId, now, plugin.getSettings().combatTagDurationNanos());
+        pendingExpiries.add(new ScheduledExpiry(playerId, deadline));
+        updatePosition(playerId, player.getLocation());
+        plugin.getCombatSync().publishTag(playerId, deadline);
 
         if (!wasTagged) {
-            player.sendMessage(Component.text("You are now in combat! Do not log out or you will be punished!", NamedTextColor.RED));
+            plugin.getSettings().messages().send(player, MessageKey.COMBAT_STARTED);
+            callEvent(new PlayerCombatTagEvent(player, opponent), player);
+            plugin.getEventStream().publish(CombatEvent.now(CombatEvent.Type.TAG, playerId,
+                    opponent != null ? opponent.getUniqueId() : null));
+        }
+
+        if (event.shouldCommit()) {
+            event.playerId = playerId.toString();
+            event.newlyTagged = !wasTagged;
+            event.tagEntries = taggedPlayers.size();
+            event.commit();
         }
     }
 
@@ -43,59 +150,250 @@ public class CombatManager {
      * @param player The player to untag
      */
     public void untagPlayer(Player player) {
-        UUID playerId = player.getUniqueId();
-
-        if (taggedPlayers.containsKey(playerId)) {
-            taggedPlayers.remove(playerId);
-            player.sendMessage(Component.text("You are no longer in combat. You may now log out safely.", NamedTextColor.GREEN));
+        // The wheel entry is left to run out - expiring a missing tag is a no-op
+        boolean wasTagged = taggedPlayers.untag(player.getUniqueId(), System.nanoTime());
+        forgetCombat(player.getUniqueId());
+        if (wasTagged) {
+            plugin.getCombatSync().publishUntag(player.getUniqueId());
+            plugin.getSettings().messages().send(player, MessageKey.COMBAT_ENDED);
+            notifyUntagged(player.getUniqueId(), PlayerCombatUntagEvent.Reason.REMOVED);
         }
     }
 
     /**
-     * Check if a player is tagged as being in combat
+     * Apply a combat tag made on another server.
+     * It is not published again, and no events are called for it on this server.
+     *
+     * @param playerId The UUID of the tagged player
+     * @param remaining The time left on the tag, in nanoseconds
+     */
+    public void applyRemoteTag(UUID playerId, long remaining) {
+        long deadline = taggedPlayers.tag(playerId, System.nanoTime(), remaining);
+        pendingExpiries.add(new ScheduledExpiry(playerId, deadline));
+    }
+
+    /**
+     * Apply the removal of a combat tag made on another server.
+     * It is not published again, and no events are called for it on this server.
+     *
+     * @param playerId The UUID of the untagged player
+     */
+    public void applyRemoteUntag(UUID playerId) {
+        taggedPlayers.untag(playerId, System.nanoTime());
+        forgetCombat(playerId);
+    }
+
+    /**
+     * Check if a player is tagged as being in combat.
+     * This is a pure read and is safe to call from any thread.
      *
      * @param player The player to check
      * @return True if the player is in combat, false otherwise
      */
     public boolean isPlayerTagged(Player player) {
-        UUID playerId = player.getUniqueId();
+        return isPlayerTagged(player.getUniqueId());
+    }
 
-        if (!taggedPlayers.containsKey(playerId)) {
-            return false;
+    /**
+     * Check if a player is tagged as being in combat.
+     * This is a pure read and is safe to call from any thread.
+     *
+     * @param playerId The UUID of the player to check
+     * @return True if the player is in combat, false otherwise
+     */
+    public boolean isPlayerTagged(UUID playerId) {
+        return taggedPlayers.isTagged(playerId, System.nanoTime());
+    }
+
+    /**
+     * Get the time in seconds until a player's combat tag expires
+     *
+     * @param player The player to check
+     * @return The time in seconds until the tag expires, or 0 if not tagged
+     */
+    public int getTimeUntilTagExpires(Player player) {
+        return getTimeUntilTagExpires(player.getUniqueId());
+    }
+
+    /**
+     * Get the time in seconds until a player's combat tag expires
+     *
+     * @param playerId The UUID of the player to check
+     * @return The time in seconds until the tag expires, or 0 if not tagged
+     */
+    public int getTimeUntilTagExpires(UUID playerId) {
+        return (int) TimeUnit.NANOSECONDS.toSeconds(taggedPlayers.remaining(playerId, System.nanoTime()));
+    }
+
+    /**
+     * Get the time left on a player's combat tag
+     *
+     * @param playerId The UUID of the player to check
+     * @return The remaining nanoseconds, or 0 if not tagged
+     */
+    public long getRemainingNanos(UUID playerId) {
+        return taggedPlayers.remaining(playerId, System.nanoTime());
+    }
+
+    /**
+     * Keep a tagged player's position in the combatant index up to date
+     *
+     * @param player The player who moved
+     * @param location Their new location
+     */
+    public void handleMove(Player player, Location location) {
+        UUID playerId = player.getUniqueId();
+        if (isPlayerTagged(playerId)) {
+            updatePosition(playerId, location);
+        } else {
+            combatants.remove(playerId);
         }
+    }
 
-        long expireTime = taggedPlayers.get(playerId);
+    /**
+     * Drop a player from the combatant index, e.g. when they go offline.
+     * Their tag itself is kept.
+     *
+     * @param playerId The UUID of the player
+     */
+    public void handleQuit(UUID playerId) {
+        combatants.remove(playerId);
+    }
 
-        if (System.currentTimeMillis() > expireTime) {
-            taggedPlayers.remove(playerId);
-            player.sendMessage(Component.text("You are no longer in combat. You may now log out safely.", NamedTextColor.GREEN));
+    /**
+     * Check if any of a player's opponents is within a radius of them
+     *
+     * @param player The player to check
+     * @param radius The radius in blocks
+     * @return True if a tagged opponent is online and within the radius, false otherwise
+     */
+    public boolean hasOpponentWithin(Player player, double radius) {
+        Set<UUID> fought = opponents.get(player.getUniqueId());
+        if (fought == null || fought.isEmpty()) {
             return false;
         }
 
-        return true;
+        // The opponent set is small, so look each one up instead of probing every chunk in the radius
+        Location location = player.getLocation();
+        UUID worldId = location.getWorld().getUID();
+        double radiusSquared = radius * radius;
+        long now = System.nanoTime();
+        for (UUID opponentId : fought) {
+            CombatantIndex.Position position = combatants.getPosition(opponentId);
+            if (position != null && position.worldId().equals(worldId)
+                    && position.distanceSquared(location.getX(), location.getY(), location.getZ()) <= radiusSquared
+                    && taggedPlayers.isTagged(opponentId, now)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
-     * Get the time in seconds until a player's combat tag expires
+     * Visit every tagged online player within a radius of a location
      *
-     * @param player The player to check
-     * @return The time in seconds until the tag expires, or 0 if not tagged
+     * @param location The centre
+     * @param radius The radius in blocks
+     * @param action Called with the position of each combatant in range
      */
-    public int getTimeUntilTagExpires(Player player) {
-        UUID playerId = player.getUniqueId();
+    public void forEachCombatantWithin(Location location, double radius, Consumer<CombatantIndex.Position> action) {
+        combatants.forEachWithin(location.getWorld().getUID(), location.getX(), location.getY(), location.getZ(), radius, action);
+    }
+
+    /**
+     * Get the players someone has fought during their current tag
+     *
+     * @param playerId The UUID of the player
+     * @return The UUIDs of their opponents, empty if they are not tagged
+     */
+    public Set<UUID> getOpponents(UUID playerId) {
+        Set<UUID> fought = opponents.get(playerId);
+        return fought == null ? Set.of() : Set.copyOf(fought);
+    }
+
+    private void addOpponent(UUID playerId, UUID opponentId) {
+        opponents.computeIfAbsent(playerId, id -> ConcurrentHashMap.newKeySet()).add(opponentId);
+    }
+
+    private void updatePosition(UUID playerId, Location location) {
+        combatants.update(playerId, location.getWorld().getUID(), location.getX(), location.getY(), location.getZ());
+    }
+
+    private void forgetCombat(UUID playerId) {
+        combatants.remove(playerId);
+        opponents.remove(playerId);
+    }
+
+    /**
+     * Visit every tagged player. The view is weakly consistent with concurrent updates.
+     *
+     * @param action Called with each tagged player's UUID and the nanoseconds left on their tag
+     */
+    public void forEachTagged(ObjLongConsumer<UUID> action) {
+        long now = System.nanoTime();
+        taggedPlayers.forEachTagged(now, (playerId, deadline) -> action.accept(playerId, deadline - now));
+    }
 
-        if (!taggedPlayers.containsKey(playerId)) {
-            return 0;
+    /**
+     * Advance the expiry wheel and notify every player whose tag has just run out.
+     * Tags of players who went offline are swept here as well.
+     */
+    private void expireTags() {
+        ScheduledExpiry scheduled;
+        while ((scheduled = pendingExpiries.poll()) != null) {
+            expiryWheel.schedule(scheduled.playerId(), scheduled.deadline());
         }
 
-        long expireTime = taggedPlayers.get(playerId);
-        long currentTime = System.currentTimeMillis();
+        long now = System.nanoTime();
+        expiryWheel.advance(now, playerId -> {
+            long remaining = taggedPlayers.remaining(playerId, now);
+            if (remaining > 0) {
+                // Refreshed by a deadline that has not reached the wheel in order yet
+                expiryWheel.schedule(playerId, now + remaining);
+                return;
+            }
+            if (!taggedPlayers.expire(playerId, now)) {
+                return;
+            }
+            forgetCombat(playerId);
+
+            Player player = plugin.getServer().getPlayer(playerId);
+            if (player != null) {
+                plugin.getSettings().messages().send(player, MessageKey.COMBAT_ENDED);
+            }
+            notifyUntagged(playerId, PlayerCombatUntagEvent.Reason.EXPIRED);
+        });
+    }
+
+    private void notifyUntagged(UUID playerId, PlayerCombatUntagEvent.Reason reason) {
+        callEvent(new PlayerCombatUntagEvent(playerId, reason), plugin.getServer().getPlayer(playerId));
+        plugin.getEventStream().publish(CombatEvent.now(CombatEvent.Type.UNTAG, playerId, null));
+    }
 
-        if (currentTime > expireTime) {
-            taggedPlayers.remove(playerId);
-            return 0;
+    /**
+     * Call a synchronous event on the thread owning the player, scheduling it there if needed.
+     * Tagging and untagging may happen on any thread, but Bukkit only allows synchronous events on a tick thread.
+     *
+     * @param event The event
+     * @param player The player the event is about, or null if they are offline
+     */
+    private void callEvent(Event event, Player player) {
+        boolean owned = player != null ? plugin.getServer().isOwnedByCurrentRegion(player) : plugin.getServer().isGlobalTickThread();
+        if (owned) {
+            plugin.getServer().getPluginManager().callEvent(event);
+            return;
+        }
+        if (!plugin.isEnabled()) {
+            return;
         }
 
-        return (int) ((expireTime - currentTime) / 1000);
+        if (player != null) {
+            player.getScheduler().run(plugin, task -> plugin.getServer().getPluginManager().callEvent(event), null);
+        } else {
+            plugin.getServer().getGlobalRegionScheduler().execute(plugin, () -> plugin.getServer().getPluginManager().callEvent(event));
+        }
+    }
+
+    private record ScheduledExpiry(UUID playerId, long deadline) {
     }
 }
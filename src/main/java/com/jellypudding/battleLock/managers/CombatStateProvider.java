@@ -0,0 +1,98 @@
+package com.jellypudding.battleLock.managers;
+
+import com.jellypudding.battleLock.api.CombatEvent;
+import com.jellypudding.battleLock.api.CombatLogNpcSnapshot;
+import com.jellypudding.battleLock.api.CombatStateService;
+import com.jellypudding.battleLock.api.TaggedPlayerSnapshot;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Flow;
+
+/**
+ * The {@link CombatStateService} registered with the services manager.
+ * Answers straight from the lock-free maps of the combat and NPC managers.
+ */
+public class CombatStateProvider implements CombatStateService {
+
+    private final CombatManager combatManager;
+    private final CombatLogManager combatLogManager;
+    private final CombatEventStream eventStream;
+
+    public CombatStateProvider(CombatManager combatManager, CombatLogManager combatLogManager, CombatEventStream eventStream) {
+        this.combatManager = combatManager;
+        this.combatLogManager = combatLogManager;
+        this.eventStream = eventStream;
+    }
+
+    @Override
+    public boolean isTagged(UUID playerId) {
+        return combatManager.isPlayerTagged(playerId);
+    }
+
+    @Override
+    public Duration getTimeRemaining(UUID playerId) {
+        return Duration.ofNanos(combatManager.getRemainingNanos(playerId));
+    }
+
+    @Override
+    public Set<UUID> getOpponents(UUID playerId) {
+        return combatManager.getOpponents(playerId);
+    }
+
+    @Override
+    public Optional<TaggedPlayerSnapshot> getTaggedPlayer(UUID playerId) {
+        long remaining = combatManager.getRemainingNanos(playerId);
+        if (remaining <= 0) {
+            return Optional.empty();
+        }
+        return Optional.of(new TaggedPlayerSnapshot(playerId, Duration.ofNanos(remaining), combatManager.getOpponents(playerId)));
+    }
+
+    @Override
+    public List<TaggedPlayerSnapshot> getTaggedPlayers() {
+        List<TaggedPlayerSnapshot> snapshots = new ArrayList<>();
+        combatManager.forEachTagged((playerId, remaining) -> snapshots.add(
+                new TaggedPlayerSnapshot(playerId, Duration.ofNanos(remaining), combatManager.getOpponents(playerId))));
+        return List.copyOf(snapshots);
+    }
+
+    @Override
+    public boolean isCombatLogNpc(UUID entityId) {
+        return combatLogManager.getCombatLogNPCByEntity(entityId) != null;
+    }
+
+    @Override
+    public Optional<CombatLogNpcSnapshot> getNpc(UUID playerId) {
+        return Optional.ofNullable(combatLogManager.getCombatLogNPC(playerId)).map(CombatStateProvider::snapshot);
+    }
+
+    @Override
+    public Optional<CombatLogNpcSnapshot> getNpcByEntity(UUID entityId) {
+        return Optional.ofNullable(combatLogManager.getCombatLogNPCByEntity(entityId)).map(CombatStateProvider::snapshot);
+    }
+
+    @Override
+    public List<CombatLogNpcSnapshot> getNpcs() {
+        List<CombatLogNpcSnapshot> snapshots = new ArrayList<>();
+        for (CombatLogNPC npc : combatLogManager.getCombatLogNPCs()) {
+            snapshots.add(snapshot(npc));
+        }
+        return List.copyOf(snapshots);
+    }
+
+    @Override
+    public Flow.Publisher<CombatEvent> getEventStream() {
+        return eventStream;
+    }
+
+    private static CombatLogNpcSnapshot snapshot(CombatLogNPC npc) {
+        return new CombatLogNpcSnapshot(npc.getPlayerId(), npc.getPlayerName(), npc.getEntityId(), !npc.isParked(), npc.getLocation(),
+                npc.getHealth(), Instant.ofEpochMilli(npc.getDespawnAt()));
+    }
+}
@@ -0,0 +1,139 @@
+package com.jellypudding.battleLock.managers;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * Lock-free table of combat tags, safe to use from any thread.
+ * <p>
+ * Deadlines are {@link System#nanoTime()} values, so they are unaffected by wall clock changes.
+ * Reads are a single non-blocking map lookup; updates replace the immutable tag with compare-and-set,
+ * so a concurrent expiry can never remove a tag that was just refreshed.
+ */
+public final class CombatTagTable {
+
+    private final ConcurrentHashMap<UUID, Tag> tags;
+
+    public CombatTagTable() {
+        this.tags = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Tag a player, extending their current tag if the new deadline is later
+     *
+     * @param playerId The UUID of the player
+     * @param now The current nanoTime
+     * @param duration The tag duration in nanoseconds
+     * @return The deadline the player is now tagged until
+     */
+    public long tag(UUID playerId, long now, long duration) {
+        Tag next = new Tag(now + duration);
+        for (;;) {
+            Tag current = tags.get(playerId);
+            if (current == null) {
+                if (tags.putIfAbsent(playerId, next) == null) {
+                    return next.deadline();
+                }
+            } else if (current.deadline() - next.deadline() >= 0) {
+                return current.deadline();
+            } else if (tags.replace(playerId, current, next)) {
+                return next.deadline();
+            }
+        }
+    }
+
+    /**
+     * Remove a player's tag
+     *
+     * @param playerId The UUID of the player
+     * @param now The current nanoTime
+     * @return True if the player was tagged, false otherwise
+     */
+    public boolean untag(UUID playerId, long now) {
+        Tag removed = tags.remove(playerId);
+        return removed != null && removed.deadline() - now > 0;
+    }
+
+    /**
+     * Remove a player's tag if it has run out.
+     * A tag that was refreshed after its old deadline was scheduled is left alone.
+     *
+     * @param playerId The UUID of the player
+     * @param now The current nanoTime
+     * @return True if an expired tag was removed, false otherwise
+     */
+    public boolean expire(UUID playerId, long now) {
+        for (;;) {
+            Tag current = tags.get(playerId);
+            if (current == null || current.deadline() - now > 0) {
+                return false;
+            }
+            if (tags.remove(playerId, current)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Check if a player is tagged
+     *
+     * @param playerId The UUID of the player
+     * @param now The current nanoTime
+     * @return True if the player is tagged, false otherwise
+     */
+    public boolean isTagged(UUID playerId, long now) {
+        Tag tag = tags.get(playerId);
+        return tag != null && tag.deadline() - now > 0;
+    }
+
+    /**
+     * Get the time left on a player's tag
+     *
+     * @param playerId The UUID of the player
+     * @param now The current nanoTime
+     * @return The remaining nanoseconds, or 0 if the player is not tagged
+     */
+    public long remaining(UUID playerId, long now) {
+        Tag tag = tags.get(playerId);
+        if (tag == null) {
+            return 0L;
+        }
+        return Math.max(0L, tag.deadline() - now);
+    }
+
+    /**
+     * Visit every active tag. The view is weakly consistent with concurrent updates.
+     *
+     * @param now The current nanoTime
+     * @param action Called with each tagged player's UUID and deadline
+     */
+    public void forEachTagged(long now, ObjLongConsumer<UUID> action) {
+        for (Map.Entry<UUID, Tag> entry : tags.entrySet()) {
+            long deadline = entry.getValue().deadline();
+            if (deadline - now > 0) {
+                action.accept(entry.getKey(), deadline);
+            }
+        }
+    }
+
+    /**
+     * Get the number of entries, including tags that have run out but were not swept yet
+     *
+     * @return The number of entries
+     */
+    public int size() {
+        return tags.size();
+    }
+
+    /**
+     * Remove every tag
+     */
+    public void clear() {
+        tags.clear();
+    }
+
+    private record Tag(long deadline) {
+    }
+}
@@ -0,0 +1,219 @@
+package com.jellypudding.battleLock.managers;
+
+import com.jellypudding.battleLock.BattleLock;
+import com.jellypudding.battleLock.config.CombatTimerDisplay;
+import com.jellypudding.battleLock.config.MessageKey;
+import com.jellypudding.battleLock.config.MessageTemplate;
+import com.jellypudding.battleLock.config.Settings;
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+import net.kyori.adventure.bossbar.BossBar;
+import net.kyori.adventure.text.Component;
+import org.bukkit.entity.Player;
+
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shows tagged players a live countdown of their combat tag in the action bar or a boss bar.
+ * <p>
+ * A single global task renders every tagged player. A player is only sent an update when the
+ * second shown to them changes, using labels built once per remaining-seconds value, and is left
+ * alone again once their tag is gone. Boss bar changes run on the player's own scheduler so the
+ * bar is only ever touched by the thread owning the player.
+ */
+public class CombatTimer {
+
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final BattleLock plugin;
+    private final CombatManager combatManager;
+    private final Map<UUID, Display> displays; // Player UUID -> what is currently shown to them
+    private Frames frames; // Only touched by the render task
+    private long tick; // Only touched by the render task
+    private ScheduledTask renderTask;
+
+    public CombatTimer(BattleLock plugin, CombatManager combatManager) {
+        this.plugin = plugin;
+        this.combatManager = combatManager;
+        this.displays = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Start the render task
+     */
+    public void start() {
+        if (renderTask == null) {
+            renderTask = plugin.getServer().getGlobalRegionScheduler().runAtFixedRate(plugin, task -> render(), 1L, 1L);
+        }
+    }
+
+    /**
+     * Stop the render task and take down every timer
+     */
+    public void shutdown() {
+        if (renderTask != null) {
+            renderTask.cancel();
+            renderTask = null;
+        }
+
+        for (Map.Entry<UUID, Display> entry : displays.entrySet()) {
+            Player player = plugin.getServer().getPlayer(entry.getKey());
+            if (player != null && entry.getValue().bar != null) {
+                player.hideBossBar(entry.getValue().bar);
+            }
+        }
+        displays.clear();
+    }
+
+    /**
+     * Forget a player's timer - call from the player's own thread, e.g. when they quit
+     *
+     * @param player The player
+     */
+    public void remove(Player player) {
+        Display display = displays.remove(player.getUniqueId());
+        if (display != null && display.bar != null) {
+            player.hideBossBar(display.bar);
+        }
+    }
+
+    private void render() {
+        Settings settings = plugin.getSettings();
+        CombatTimerDisplay mode = settings.combatTimer();
+        Frames current = frames(settings);
+        long now = ++tick;
+
+        if (mode != CombatTimerDisplay.NONE) {
+            combatManager.forEachTagged((playerId, remaining) -> update(playerId, remaining, mode, current, now));
+        }
+
+        // Anyone not seen this tick is no longer tagged
+        if (!displays.isEmpty()) {
+            Iterator<Map.Entry<UUID, Display>> iterator = displays.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<UUID, Display> entry = iterator.next();
+                if (entry.getValue().seenTick != now) {
+                    iterator.remove();
+                    clear(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+    }
+
+    private void update(UUID playerId, long remaining, CombatTimerDisplay mode, Frames current, long now) {
+        int seconds = (int) Math.min(current.progress().length - 1, (remaining + NANOS_PER_SECOND - 1) / NANOS_PER_SECOND);
+
+        Display display = displays.get(playerId);
+        if (display != null && display.mode == mode) {
+            display.seenTick = now;
+            if (display.seconds == seconds) {
+                return;
+            }
+        } else if (display != null) {
+            // The display type was changed by a reload
+            displays.remove(playerId);
+            clear(playerId, display);
+            display = null;
+        }
+
+        Player player = plugin.getServer().getPlayer(playerId);
+        if (player == null) {
+            if (display != null) {
+                displays.remove(playerId);
+            }
+            return;
+        }
+
+        if (display == null) {
+            display = new Display(mode);
+            display.seenTick = now;
+            displays.put(playerId, display);
+        }
+        display.seconds = seconds;
+
+        MessageTemplate template = current.settings().messages().template(MessageKey.COMBAT_TIMER, player.locale());
+        Component label = current.labels(template)[seconds];
+        if (mode == CombatTimerDisplay.ACTION_BAR) {
+            player.sendActionBar(label);
+            return;
+        }
+
+        float progress = current.progress()[seconds];
+        BossBar bar = display.bar;
+        if (bar == null) {
+            BossBar created = BossBar.bossBar(label, progress, BossBar.Color.RED, BossBar.Overlay.PROGRESS);
+            display.bar = created;
+            player.getScheduler().run(plugin, task -> player.showBossBar(created), null);
+        } else {
+            player.getScheduler().run(plugin, task -> {
+                bar.name(label);
+                bar.progress(progress);
+            }, null);
+        }
+    }
+
+    private void clear(UUID playerId, Display display) {
+        Player player = plugin.getServer().getPlayer(playerId);
+        if (player == null) {
+            return;
+        }
+
+        if (display.bar != null) {
+            BossBar bar = display.bar;
+            player.getScheduler().run(plugin, task -> player.hideBossBar(bar), null);
+        } else {
+            player.sendActionBar(Component.empty());
+        }
+    }
+
+    /**
+     * Get the frames for the current settings, rebuilding them after a reload
+     */
+    private Frames frames(Settings settings) {
+        Frames current = frames;
+        if (current == null || current.settings() != settings) {
+            int duration = settings.combatTagDuration();
+            float[] progress = new float[duration + 1];
+            for (int seconds = 0; seconds <= duration; seconds++) {
+                progress[seconds] = (float) seconds / duration;
+            }
+            current = new Frames(settings, progress, new IdentityHashMap<>());
+            frames = current;
+        }
+        return current;
+    }
+
+    /**
+     * Labels and boss bar progress per remaining-seconds value.
+     * Labels are rendered once per locale variant of the timer message, on first use.
+     */
+    private record Frames(Settings settings, float[] progress, Map<MessageTemplate, Component[]> labelsByTemplate) {
+
+        private Component[] labels(MessageTemplate template) {
+            Component[] labels = labelsByTemplate.get(template);
+            if (labels == null) {
+                labels = new Component[progress.length];
+                for (int seconds = 0; seconds < labels.length; seconds++) {
+                    labels[seconds] = template.render(Integer.toString(seconds));
+                }
+                labelsByTemplate.put(template, labels);
+            }
+            return labels;
+        }
+    }
+
+    private static final class Display {
+        private final CombatTimerDisplay mode;
+        private int seconds = -1;
+        private long seenTick;
+        private volatile BossBar bar; // Also read by remove() on the player's thread
+
+        private Display(CombatTimerDisplay mode) {
+            this.mode = mode;
+        }
+    }
+}
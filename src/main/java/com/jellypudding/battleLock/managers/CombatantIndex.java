@@ -0,0 +1,214 @@
+package com.jellypudding.battleLock.managers;
+
+import org.bukkit.Chunk;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Chunk-bucketed spatial index of combatants, safe to use from any thread.
+ * <p>
+ * Each combatant sits in the bucket of the chunk they are in, so a proximity query only probes
+ * the few buckets overlapping the search radius instead of scanning every player. Positions are
+ * updated incrementally; a combatant only moves between buckets when they cross a chunk border.
+ */
+public final class CombatantIndex {
+
+    private final Map<UUID, Position> positions; // Player UUID -> last known position
+    private final Map<UUID, Map<Long, Set<UUID>>> buckets; // World UUID -> chunk key -> players
+
+    public CombatantIndex() {
+        this.positions = new ConcurrentHashMap<>();
+        this.buckets = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Add a combatant or update their position
+     *
+     * @param playerId The UUID of the player
+     * @param worldId The UUID of the player's world
+     * @param x The x coordinate
+     * @param y The y coordinate
+     * @param z The z coordinate
+     */
+    public void update(UUID playerId, UUID worldId, double x, double y, double z) {
+        Position next = new Position(playerId, worldId, x, y, z);
+        Position previous = positions.put(playerId, next);
+        if (previous != null && previous.worldId().equals(worldId) && previous.chunkKey() == next.chunkKey()) {
+            return;
+        }
+
+        if (previous != null) {
+            removeFromBucket(previous);
+        }
+        buckets.computeIfAbsent(worldId, world -> new ConcurrentHashMap<>())
+                .compute(next.chunkKey(), (key, bucket) -> {
+                    Set<UUID> players = bucket != null ? bucket : ConcurrentHashMap.newKeySet();
+                    players.add(playerId);
+                    return players;
+                });
+    }
+
+    /**
+     * Remove a combatant
+     *
+     * @param playerId The UUID of the player
+     * @return True if the player was indexed, false otherwise
+     */
+    public boolean remove(UUID playerId) {
+        Position previous = positions.remove(playerId);
+        if (previous == null) {
+            return false;
+        }
+        removeFromBucket(previous);
+        return true;
+    }
+
+    /**
+     * Check if a player is indexed
+     *
+     * @param playerId The UUID of the player
+     * @return True if the player is indexed, false otherwise
+     */
+    public boolean contains(UUID playerId) {
+        return positions.containsKey(playerId);
+    }
+
+    /**
+     * Get a combatant's last known position
+     *
+     * @param playerId The UUID of the player
+     * @return The position, or null if the player is not indexed
+     */
+    public Position getPosition(UUID playerId) {
+        return positions.get(playerId);
+    }
+
+    /**
+     * Check if any combatant matching a filter is within a radius
+     *
+     * @param worldId The UUID of the world to search
+     * @param x The x coordinate of the centre
+     * @param y The y coordinate of the centre
+     * @param z The z coordinate of the centre
+     * @param radius The search radius in blocks
+     * @param filter Tested with each combatant in range until it matches
+     * @return True if a matching combatant is within the radius, false otherwise
+     */
+    public boolean anyWithin(UUID worldId, double x, double y, double z, double radius, Predicate<Position> filter) {
+        Map<Long, Set<UUID>> world = buckets.get(worldId);
+        if (world == null) {
+            return false;
+        }
+
+        double radiusSquared = radius * radius;
+        int minChunkX = floorToChunk(x - radius);
+        int maxChunkX = floorToChunk(x + radius);
+        int minChunkZ = floorToChunk(z - radius);
+        int maxChunkZ = floorToChunk(z + radius);
+
+        for (int chunkX = minChunkX; chunkX <= maxChunkX; chunkX++) {
+            for (int chunkZ = minChunkZ; chunkZ <= maxChunkZ; chunkZ++) {
+                Set<UUID> bucket = world.get(Chunk.getChunkKey(chunkX, chunkZ));
+                if (bucket == null) {
+                    continue;
+                }
+                for (UUID playerId : bucket) {
+                    Position position = positions.get(playerId);
+                    if (position != null && position.distanceSquared(x, y, z) <= radiusSquared && filter.test(position)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Visit every combatant within a radius
+     *
+     * @param worldId The UUID of the world to search
+     * @param x The x coordinate of the centre
+     * @param y The y coordinate of the centre
+     * @param z The z coordinate of the centre
+     * @param radius The search radius in blocks
+     * @param action Called with each combatant in range
+     */
+    public void forEachWithin(UUID worldId, double x, double y, double z, double radius, Consumer<Position> action) {
+        anyWithin(worldId, x, y, z, radius, position -> {
+            action.accept(position);
+            return false;
+        });
+    }
+
+    /**
+     * Get the number of indexed combatants
+     *
+     * @return The number of combatants
+     */
+    public int size() {
+        return positions.size();
+    }
+
+    /**
+     * Remove every combatant
+     */
+    public void clear() {
+        positions.clear();
+        buckets.clear();
+    }
+
+    private void removeFromBucket(Position position) {
+        Map<Long, Set<UUID>> world = buckets.get(position.worldId());
+        if (world != null) {
+            world.computeIfPresent(position.chunkKey(), (key, bucket) -> {
+                bucket.remove(position.playerId());
+                return bucket.isEmpty() ? null : bucket;
+            });
+        }
+    }
+
+    private static int floorToChunk(double coordinate) {
+        return (int) Math.floor(coordinate) >> 4;
+    }
+
+    /**
+     * A combatant's last known position
+     *
+     * @param playerId The UUID of the player
+     * @param worldId The UUID of the world
+     * @param x The x coordinate
+     * @param y The y coordinate
+     * @param z The z coordinate
+     */
+    public record Position(UUID playerId, UUID worldId, double x, double y, double z) {
+
+        /**
+         * Get the key of the chunk containing this position
+         *
+         * @return The chunk key, as returned by {@link Chunk#getChunkKey(int, int)}
+         */
+        public long chunkKey() {
+            return Chunk.getChunkKey(floorToChunk(x), floorToChunk(z));
+        }
+
+        /**
+         * Get the squared distance to a point
+         *
+         * @param x The x coordinate of the point
+         * @param y The y coordinate of the point
+         * @param z The z coordinate of the point
+         * @return The squared distance in blocks
+         */
+        public double distanceSquared(double x, double y, double z) {
+            double dx = this.x - x;
+            double dy = this.y - y;
+            double dz = this.z - z;
+            return dx * dx + dy * dy + dz * dz;
+        }
+    }
+}
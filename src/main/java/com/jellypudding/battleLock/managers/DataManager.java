@@ -1,23 +1,106 @@
 package com.jellypudding.battleLock.managers;
 
 import com.jellypudding.battleLock.BattleLock;
-import org.bukkit.configuration.file.YamlConfiguration;
+import com.jellypudding.battleLock.jfr.PunishmentIoEvent;
+import com.jellypudding.battleLock.storage.JournalPunishmentStore;
+import com.jellypudding.battleLock.storage.PunishmentRecord;
+import com.jellypudding.battleLock.storage.PunishmentStore;
+import com.jellypudding.battleLock.storage.YamlPunishmentStore;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.logging.Level;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
 
 public class DataManager {
 
+    private static final long REMOVED = -1L; // Pending write marker for a deleted record
+    private static final int PREFETCH_CAPACITY = 1024;
+    private static final long PREFETCH_TTL = 60_000L; // Milliseconds a pre-login result is kept
+    private static final long RETRY_MIN_DELAY = 1_000L; // Milliseconds before the first retry of a failed load or write
+    private static final long RETRY_MAX_DELAY = 60_000L;
+
     private final BattleLock plugin;
-    private final File dataFolder;
+    private final File legacyFolder;
+    private final Path journalFile;
+    private final boolean useJournal;
+    private final Set<UUID> killedNpcs; // In-memory punishment index
+    private final Map<UUID, Long> pendingWrites; // Player UUID -> kill timestamp, or REMOVED
+    private final LinkedHashMap<UUID, PrefetchedStatus> prefetched; // Guarded by itself, oldest first
+    private final AtomicBoolean flushQueued;
+    private final ScheduledThreadPoolExecutor writer;
+    private final CompletableFuture<Void> available; // Completed once the records are loaded
+    private PunishmentStore store; // Only touched on the writer thread
+    private CompletableFuture<Void> loadFuture;
+    private long loadRetryDelay = RETRY_MIN_DELAY; // Only touched on the writer thread
+    private long writeRetryDelay = RETRY_MIN_DELAY; // Only touched on the writer thread
 
     public DataManager(BattleLock plugin) {
         this.plugin = plugin;
-        this.dataFolder = new File(plugin.getDataFolder(), "playerdata");
-        if (!dataFolder.exists()) {
-            dataFolder.mkdirs();
+        this.legacyFolder = new File(plugin.getDataFolder(), "playerdata");
+        this.journalFile = new File(plugin.getDataFolder(), "punishments.journal").toPath();
+        this.useJournal = plugin.getSettings().useJournal(); // Switching backends needs a restart
+        this.killedNpcs = ConcurrentHashMap.newKeySet();
+        this.pendingWrites = new ConcurrentHashMap<>();
+        this.prefetched = new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, PrefetchedStatus> eldest) {
+                return size() > PREFETCH_CAPACITY;
+            }
+        };
+        this.flushQueued = new AtomicBoolean();
+        this.writer = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "BattleLock-DataWriter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Pending retries are replaced by the final flush on shutdown
+        this.writer.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        this.available = new CompletableFuture<>();
+    }
+
+    /**
+     * Load every punishment record into memory on the writer thread.
+     * A failed load is retried with backoff; until it succeeds {@link #isAvailable()} is false.
+     */
+    public void load() {
+        this.loadFuture = CompletableFuture.runAsync(this::loadRecords, writer);
+    }
+
+    /**
+     * Flush all pending writes and stop the writer thread (for plugin shutdown)
+     */
+    public void shutdown() {
+        writer.execute(() -> {
+            flush();
+            closeStore();
+            if (!pendingWrites.isEmpty()) {
+                plugin.getLogger().severe("Could not save " + pendingWrites.size() + " combat log punishment records before shutdown, they are lost: "
+                        + pendingWrites.keySet());
+            }
+        });
+        writer.shutdown();
+
+        try {
+            if (!writer.awaitTermination(10, TimeUnit.SECONDS)) {
+                plugin.getLogger().severe("Timed out while saving combat log punishment records");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
     }
 
@@ -27,35 +110,36 @@ public class DataManager {
      * @param playerUuid The UUID of the player whose NPC was killed
      */
     public void markNpcKilled(UUID playerUuid) {
-        // Save to individual player file
-        File playerFile = getPlayerFile(playerUuid);
-        YamlConfiguration config = YamlConfiguration.loadConfiguration(playerFile);
-
-        config.set("killed", true);
-        config.set("timestamp", System.currentTimeMillis());
+        long killedAt = System.currentTimeMillis();
+        applyRemotePunishment(playerUuid, killedAt);
+        plugin.getCombatSync().publishPunishment(playerUuid, killedAt);
+    }
 
-        try {
-            config.save(playerFile);
-        } catch (IOException e) {
-            plugin.getLogger().log(Level.SEVERE, "Could not save player data for " + playerUuid, e);
-        }
+    /**
+     * Record an NPC kill made on another server. It is not published again.
+     *
+     * @param playerUuid The UUID of the player whose NPC was killed
+     * @param killedAt The time the NPC was killed, in epoch milliseconds
+     */
+    public void applyRemotePunishment(UUID playerUuid, long killedAt) {
+        killedNpcs.add(playerUuid);
+        invalidatePrefetched(playerUuid);
+        queueWrite(playerUuid, killedAt);
     }
 
     /**
-     * Check if a player's NPC was killed
+     * Check if a player's NPC was killed.
+     * The answer only covers this session's kills while {@link #isAvailable()} is false.
      *
      * @param playerUuid The UUID of the player to check
      * @return True if the player's NPC was killed, false otherwise
      */
     public boolean wasNpcKilled(UUID playerUuid) {
-        // Check file directly
-        File playerFile = getPlayerFile(playerUuid);
-        if (playerFile.exists()) {
-            YamlConfiguration config = YamlConfiguration.loadConfiguration(playerFile);
-            return config.getBoolean("killed", false);
+        if (!isLoaded()) {
+            plugin.getLogger().warning("Punishment records were queried before loading finished, waiting for them");
+            awaitLoad();
         }
-
-        return false;
+        return killedNpcs.contains(playerUuid);
     }
 
     /**
@@ -64,24 +148,281 @@ public class DataManager {
      * @param playerUuid The UUID of the player to remove
      */
     public void removeKilledNpcRecord(UUID playerUuid) {
-        // Delete the player file
-        File playerFile = getPlayerFile(playerUuid);
-        if (playerFile.exists()) {
-            if (playerFile.delete()) {
-                plugin.getLogger().fine("Deleted player data file for " + playerUuid);
+        applyRemotePunishmentCleared(playerUuid);
+        plugin.getCombatSync().publishPunishmentCleared(playerUuid);
+    }
+
+    /**
+     * Remove a punishment record that was carried out on another server. It is not published again.
+     *
+     * @param playerUuid The UUID of the punished player
+     */
+    public void applyRemotePunishmentCleared(UUID playerUuid) {
+        invalidatePrefetched(playerUuid);
+        // Until the records are loaded the stored one can't be checked, so the removal is always written
+        if (killedNpcs.remove(playerUuid) || !isAvailable()) {
+            queueWrite(playerUuid, REMOVED);
+        }
+    }
+
+    /**
+     * Resolve a player's punishment status ahead of their join.
+     * Called from the async pre-login phase, so it may block until the records are loaded.
+     *
+     * @param playerUuid The UUID of the player logging in
+     */
+    public void prefetch(UUID playerUuid) {
+        awaitLoad();
+        long now = System.currentTimeMillis();
+        PrefetchedStatus status = new PrefetchedStatus(killedNpcs.contains(playerUuid), now + PREFETCH_TTL);
+
+        synchronized (prefetched) {
+            evictExpiredPrefetches(now);
+            // Re-insert so the entry moves to the back of the expiry order
+            prefetched.remove(playerUuid);
+            prefetched.put(playerUuid, status);
+        }
+    }
+
+    /**
+     * Take the punishment status resolved during pre-login
+     *
+     * @param playerUuid The UUID of the player who joined
+     * @return True if the player's NPC was killed, false if not, or null if nothing was prefetched
+     */
+    public Boolean takePrefetched(UUID playerUuid) {
+        PrefetchedStatus status;
+        synchronized (prefetched) {
+            status = prefetched.remove(playerUuid);
+        }
+
+        if (status == null || status.expiresAt() < System.currentTimeMillis()) {
+            return null;
+        }
+        return status.killed();
+    }
+
+    private void invalidatePrefetched(UUID playerUuid) {
+        synchronized (prefetched) {
+            prefetched.remove(playerUuid);
+        }
+    }
+
+    /**
+     * Drop results of players who never finished logging in
+     */
+    private void evictExpiredPrefetches(long now) {
+        Iterator<PrefetchedStatus> iterator = prefetched.values().iterator();
+        while (iterator.hasNext() && iterator.next().expiresAt() < now) {
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Check if the startup load has finished
+     *
+     * @return True if the records are loaded, false otherwise
+     */
+    public boolean isLoaded() {
+        CompletableFuture<Void> future = loadFuture;
+        return future == null || future.isDone();
+    }
+
+    /**
+     * Check if the punishment records were loaded successfully.
+     * While they are not, players who escaped an NPC kill cannot be recognised.
+     *
+     * @return True if the records are loaded, false if loading failed and is being retried
+     */
+    public boolean isAvailable() {
+        return available.isDone();
+    }
+
+    /**
+     * Get a future that completes once the punishment records are loaded
+     *
+     * @return The future, completed on the writer thread
+     */
+    public CompletableFuture<Void> whenAvailable() {
+        return available;
+    }
+
+    /**
+     * Block until the first startup load attempt has finished
+     */
+    public void awaitLoad() {
+        CompletableFuture<Void> future = loadFuture;
+        if (future != null) {
+            future.join();
+        }
+    }
+
+    private void loadRecords() {
+        PunishmentIoEvent event = new PunishmentIoEvent();
+        event.begin();
+
+        PunishmentStore opened = null;
+        Set<UUID> loaded = new HashSet<>();
+        try {
+            if (useJournal) {
+                opened = new JournalPunishmentStore(journalFile, plugin.getLogger());
+                loaded.addAll(opened.loadAll().keySet());
+
+                // Moving the folder aside marks an import as complete, so an interrupted one is redone
+                if (YamlPunishmentStore.hasRecords(legacyFolder)) {
+                    importLegacyRecords(opened, loaded);
+                }
             } else {
-                plugin.getLogger().warning("Failed to delete player data file for " + playerUuid);
+                opened = new YamlPunishmentStore(legacyFolder, plugin.getLogger());
+                loaded.addAll(opened.loadAll().keySet());
+            }
+        } catch (IOException e) {
+            commit(event, PunishmentIoEvent.LOAD, loaded.size(), 0L, false);
+            closeQuietly(opened);
+            plugin.getLogger().log(Level.SEVERE, "Could not load combat log punishment records, players cannot join until they are loaded. "
+                    + "Retrying in " + loadRetryDelay / 1000L + "s", e);
+            writer.schedule(this::loadRecords, loadRetryDelay, TimeUnit.MILLISECONDS);
+            loadRetryDelay = Math.min(loadRetryDelay * 2L, RETRY_MAX_DELAY);
+            return;
+        }
+
+        // Changes made while loading (or while the load was failing) are newer than the stored records
+        killedNpcs.addAll(loaded);
+        for (Map.Entry<UUID, Long> entry : pendingWrites.entrySet()) {
+            if (entry.getValue() == REMOVED) {
+                killedNpcs.remove(entry.getKey());
             }
         }
+        store = opened;
+        available.complete(null);
+
+        commit(event, PunishmentIoEvent.LOAD, killedNpcs.size(), 0L, true);
+        plugin.getLogger().info("Loaded " + killedNpcs.size() + " combat log punishment records.");
+        if (!pendingWrites.isEmpty()) {
+            flush();
+        }
     }
 
     /**
-     * Get the File object for a player's data file
-     *
-     * @param playerUuid The UUID of the player
-     * @return The File object for the player's data
+     * Copy the records of the per-player YAML layout into the journal, then move the old folder aside.
+     * Records already in the journal are written again, which is harmless as the newest record wins.
+     */
+    private void importLegacyRecords(PunishmentStore journal, Set<UUID> loaded) throws IOException {
+        Map<UUID, Long> legacy = new YamlPunishmentStore(legacyFolder, plugin.getLogger()).loadAll();
+        List<PunishmentRecord> records = new ArrayList<>(legacy.size());
+        for (Map.Entry<UUID, Long> entry : legacy.entrySet()) {
+            records.add(new PunishmentRecord(entry.getKey(), true, entry.getValue()));
+        }
+
+        PunishmentIoEvent event = new PunishmentIoEvent();
+        event.begin();
+        long written = journal.write(records);
+        commit(event, PunishmentIoEvent.IMPORT, records.size(), written, true);
+        loaded.addAll(legacy.keySet());
+
+        // A second import comes from running the YAML backend in between, keep the earlier folder
+        Path imported = legacyFolder.toPath().resolveSibling("playerdata-imported");
+        if (Files.exists(imported)) {
+            imported = imported.resolveSibling("playerdata-imported-" + System.currentTimeMillis());
+        }
+        Files.move(legacyFolder.toPath(), imported);
+        plugin.getLogger().info("Imported " + records.size() + " legacy punishment records into " + journalFile.getFileName());
+    }
+
+    private void closeStore() {
+        if (store == null) {
+            return;
+        }
+
+        try {
+            store.close();
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.SEVERE, "Could not close combat log punishment storage", e);
+        }
+    }
+
+    private void closeQuietly(PunishmentStore partial) {
+        if (partial == null) {
+            return;
+        }
+
+        try {
+            partial.close();
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.FINE, "Could not close partially loaded punishment storage", e);
+        }
+    }
+
+    /**
+     * Queue a record change for the writer thread.
+     * Changes to the same player are coalesced until the writer gets to them.
      */
-    private File getPlayerFile(UUID playerUuid) {
-        return new File(dataFolder, playerUuid.toString() + ".yml");
+    private void queueWrite(UUID playerUuid, long value) {
+        pendingWrites.put(playerUuid, value);
+        if (flushQueued.compareAndSet(false, true)) {
+            writer.execute(this::flush);
+        }
+    }
+
+    private void flush() {
+        flushQueued.set(false);
+        if (store == null) {
+            return; // Kept pending until the records are loaded
+        }
+
+        List<PunishmentRecord> batch = new ArrayList<>();
+        for (Map.Entry<UUID, Long> entry : pendingWrites.entrySet()) {
+            UUID playerUuid = entry.getKey();
+            long value = entry.getValue();
+
+            // Only drop the entry if it wasn't changed again in the meantime
+            if (pendingWrites.remove(playerUuid, value)) {
+                batch.add(value == REMOVED
+                        ? new PunishmentRecord(playerUuid, false, System.currentTimeMillis())
+                        : new PunishmentRecord(playerUuid, true, value));
+            }
+        }
+
+        PunishmentIoEvent event = new PunishmentIoEvent();
+        event.begin();
+        try {
+            long written = store.write(batch);
+            commit(event, PunishmentIoEvent.WRITE, batch.size(), written, true);
+            writeRetryDelay = RETRY_MIN_DELAY;
+        } catch (IOException e) {
+            commit(event, PunishmentIoEvent.WRITE, batch.size(), 0L, false);
+            requeue(batch);
+            plugin.getLogger().log(Level.SEVERE, "Could not save " + batch.size() + " combat log punishment records, retrying in "
+                    + writeRetryDelay / 1000L + "s", e);
+
+            // Hold back immediate flushes until the retry has run
+            if (flushQueued.compareAndSet(false, true) && !writer.isShutdown()) {
+                writer.schedule(this::flush, writeRetryDelay, TimeUnit.MILLISECONDS);
+            }
+            writeRetryDelay = Math.min(writeRetryDelay * 2L, RETRY_MAX_DELAY);
+        }
+    }
+
+    /**
+     * Put the records of a failed write back, unless the player's record was changed again since
+     */
+    private void requeue(List<PunishmentRecord> batch) {
+        for (PunishmentRecord record : batch) {
+            pendingWrites.putIfAbsent(record.playerId(), record.killed() ? record.timestamp() : REMOVED);
+        }
+    }
+
+    private void commit(PunishmentIoEvent event, String operation, int records, long bytesWritten, boolean succeeded) {
+        if (event.shouldCommit()) {
+            event.operation = operation;
+            event.backend = useJournal ? "journal" : "yaml";
+            event.records = records;
+            event.bytesWritten = bytesWritten;
+            event.succeeded = succeeded;
+            event.commit();
+        }
+    }
+
+    private record PrefetchedStatus(boolean killed, long expiresAt) {
     }
 }
@@ -0,0 +1,250 @@
+package com.jellypudding.battleLock.managers;
+
+import com.jellypudding.battleLock.BattleLock;
+import com.jellypudding.battleLock.config.DropContainer;
+import com.jellypudding.battleLock.config.MessageKey;
+import com.jellypudding.battleLock.storage.ItemCodec;
+import com.jellypudding.battleLock.storage.PendingDrop;
+import com.jellypudding.battleLock.storage.PendingDropStore;
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.minecart.StorageMinecart;
+import org.bukkit.inventory.ItemStack;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Level;
+
+/**
+ * Drops the items of killed combat log NPCs without a burst of item entities in one tick.
+ * <p>
+ * Stacks are merged by similarity first, then either put into a single container entity or
+ * dropped in submission order at no more than npc-drop-stacks-per-tick stacks per tick.
+ * Each portion is dropped on the region owning its location. Whatever is still queued at
+ * shutdown, or handed to a region that has not run it yet, is dropped straight away if possible,
+ * otherwise saved and dropped on the next start.
+ */
+public class DropQueue {
+
+    private final BattleLock plugin;
+    private final PendingDropStore store;
+    private final Deque<DropBatch> batches; // Guarded by itself, in submission order
+    private final Set<DropBatch> inFlight; // Guarded by batches, portions scheduled on another region
+    private ScheduledTask drainTask;
+
+    public DropQueue(BattleLock plugin) {
+        this.plugin = plugin;
+        this.store = new PendingDropStore(plugin.getDataFolder().toPath(), plugin.getLogger());
+        this.batches = new ArrayDeque<>();
+        this.inFlight = Collections.newSetFromMap(new IdentityHashMap<>());
+    }
+
+    /**
+     * Queue the drops left over from the previous session and start draining the queue
+     */
+    public void start() {
+        List<PendingDrop> pending = store.take();
+        for (PendingDrop drop : pending) {
+            World world = Bukkit.getWorld(drop.worldId());
+            if (world == null) {
+                plugin.getLogger().severe("Could not drop saved combat log NPC items, world " + drop.worldId() + " is not loaded");
+                continue;
+            }
+
+            try {
+                enqueue(new Location(world, drop.x(), drop.y(), drop.z()), merge(ItemCodec.decode(drop.items())));
+            } catch (IOException | RuntimeException e) {
+                plugin.getLogger().log(Level.SEVERE, "Could not restore saved combat log NPC items", e);
+            }
+        }
+        if (!pending.isEmpty()) {
+            plugin.getLogger().info("Dropping the items of " + pending.size() + " combat log NPCs killed before the last shutdown.");
+        }
+
+        if (drainTask == null) {
+            drainTask = plugin.getServer().getGlobalRegionScheduler().runAtFixedRate(plugin, task -> drain(), 1L, 1L);
+        }
+    }
+
+    /**
+     * Stop draining and drop or save everything still queued
+     */
+    public void shutdown() {
+        if (drainTask != null) {
+            drainTask.cancel();
+            drainTask = null;
+        }
+
+        List<PendingDrop> unsaved = new ArrayList<>();
+        int dropped = 0;
+        synchronized (batches) {
+            // Portions whose region task has not run are claimed here, so the task skips them
+            List<DropBatch> remaining = new ArrayList<>(inFlight);
+            remaining.addAll(batches);
+            inFlight.clear();
+            batches.clear();
+
+            for (DropBatch batch : remaining) {
+                Location location = batch.location();
+                World world = location.getWorld();
+                if (world != null && plugin.getServer().isOwnedByCurrentRegion(location)) {
+                    dropAll(location, batch.stacks());
+                    dropped += batch.stacks().size();
+                } else if (world != null) {
+                    unsaved.add(new PendingDrop(world.getUID(), location.getX(), location.getY(), location.getZ(),
+                            ItemCodec.encode(batch.stacks().toArray(new ItemStack[0]))));
+                }
+            }
+        }
+
+        store.save(unsaved);
+        if (dropped > 0 || !unsaved.isEmpty()) {
+            plugin.getLogger().info("Flushed combat log NPC drops: " + dropped + " stacks dropped, " + unsaved.size() + " batches saved for the next start.");
+        }
+    }
+
+    /**
+     * Drop the inventory of a killed NPC - must run on the region owning the location
+     *
+     * @param location Where to drop the items
+     * @param contents The inventory contents, may contain nulls
+     * @param ownerName The name of the player the items belonged to
+     */
+    public void submit(Location location, ItemStack[] contents, String ownerName) {
+        List<ItemStack> stacks = merge(contents);
+        if (stacks.isEmpty()) {
+            return;
+        }
+
+        if (plugin.getSettings().npcDropContainer() == DropContainer.CHEST_MINECART) {
+            stacks = fillContainer(location, stacks, ownerName);
+            if (stacks.isEmpty()) {
+                return;
+            }
+        }
+        enqueue(location, stacks);
+    }
+
+    /**
+     * Merge similar stacks up to their maximum stack size
+     *
+     * @param contents The inventory contents, may contain nulls
+     * @return The merged stacks, in inventory order
+     */
+    static List<ItemStack> merge(ItemStack[] contents) {
+        List<ItemStack> merged = new ArrayList<>();
+        for (ItemStack item : contents) {
+            if (item == null || item.isEmpty()) {
+                continue;
+            }
+
+            int amount = item.getAmount();
+            for (ItemStack stack : merged) {
+                if (amount == 0) {
+                    break;
+                }
+                int space = stack.getMaxStackSize() - stack.getAmount();
+                if (space > 0 && stack.isSimilar(item)) {
+                    int moved = Math.min(space, amount);
+                    stack.setAmount(stack.getAmount() + moved);
+                    amount -= moved;
+                }
+            }
+
+            if (amount > 0) {
+                ItemStack rest = item.clone();
+                rest.setAmount(amount);
+                merged.add(rest);
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Put the stacks into a chest minecart
+     *
+     * @return The stacks that did not fit
+     */
+    private List<ItemStack> fillContainer(Location location, List<ItemStack> stacks, String ownerName) {
+        List<ItemStack> leftover = new ArrayList<>();
+        location.getWorld().spawn(location, StorageMinecart.class, cart -> {
+            cart.customName(plugin.getSettings().messages().render(MessageKey.DROP_CONTAINER_NAME, ownerName));
+            cart.setCustomNameVisible(true);
+            leftover.addAll(cart.getInventory().addItem(stacks.toArray(new ItemStack[0])).values());
+        });
+        return leftover;
+    }
+
+    private void enqueue(Location location, List<ItemStack> stacks) {
+        synchronized (batches) {
+            batches.add(new DropBatch(location, new ArrayDeque<>(stacks)));
+        }
+    }
+
+    /**
+     * Hand out this tick's budget of stacks, oldest batches first
+     */
+    private void drain() {
+        int budget = plugin.getSettings().npcDropStacksPerTick();
+        List<DropBatch> portions = new ArrayList<>();
+
+        synchronized (batches) {
+            while (budget > 0 && !batches.isEmpty()) {
+                DropBatch batch = batches.peek();
+                Deque<ItemStack> portion = new ArrayDeque<>();
+                while (budget > 0 && !batch.stacks().isEmpty()) {
+                    portion.add(batch.stacks().poll());
+                    budget--;
+                }
+                if (batch.stacks().isEmpty()) {
+                    batches.poll();
+                }
+                portions.add(new DropBatch(batch.location(), portion));
+            }
+        }
+
+        for (DropBatch portion : portions) {
+            Location location = portion.location();
+            if (plugin.getServer().isOwnedByCurrentRegion(location)) {
+                dropAll(location, portion.stacks());
+                continue;
+            }
+
+            synchronized (batches) {
+                inFlight.add(portion);
+            }
+            plugin.getServer().getRegionScheduler().execute(plugin, location, () -> {
+                if (claim(portion)) {
+                    dropAll(location, portion.stacks());
+                }
+            });
+        }
+    }
+
+    /**
+     * Take a scheduled portion, unless shutdown already dropped or saved it
+     */
+    private boolean claim(DropBatch portion) {
+        synchronized (batches) {
+            return inFlight.remove(portion);
+        }
+    }
+
+    private static void dropAll(Location location, Deque<ItemStack> stacks) {
+        World world = location.getWorld();
+        for (ItemStack stack : stacks) {
+            world.dropItemNaturally(location, stack);
+        }
+    }
+
+    private record DropBatch(Location location, Deque<ItemStack> stacks) {
+    }
+}
@@ -0,0 +1,123 @@
+package com.jellypudding.battleLock.managers;
+
+import com.jellypudding.battleLock.BattleLock;
+import com.jellypudding.battleLock.config.Settings;
+import org.bukkit.entity.Player;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caches the BattleLock permissions of each online player, so combat hot paths do not resolve
+ * permissions on every hit or command.
+ * <p>
+ * Capabilities are resolved on the player's own thread when they join, change world, or are sent
+ * their command list again (which permission plugins trigger after changing permissions). Entries
+ * resolved against older settings are recomputed on their next read, so a reload needs no sweep.
+ */
+public class PermissionCache {
+
+    public static final String BYPASS_PERMISSION = "battlelock.bypass";
+    private static final int MAX_CACHED_GROUPS = Long.SIZE;
+
+    private final BattleLock plugin;
+    private final Map<UUID, Capabilities> capabilities;
+
+    public PermissionCache(BattleLock plugin) {
+        this.plugin = plugin;
+        this.capabilities = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Resolve a player's capabilities again - call from the player's own thread
+     *
+     * @param player The player
+     */
+    public void refresh(Player player) {
+        capabilities.put(player.getUniqueId(), resolve(player, plugin.getSettings()));
+    }
+
+    /**
+     * Forget a player, e.g. when they quit
+     *
+     * @param playerId The UUID of the player
+     */
+    public void remove(UUID playerId) {
+        capabilities.remove(playerId);
+    }
+
+    /**
+     * Forget every player
+     */
+    public void clear() {
+        capabilities.clear();
+    }
+
+    /**
+     * Check if a player is never combat tagged, i.e. allow-bypass is on and they have battlelock.bypass
+     *
+     * @param player The player to check
+     * @return True if the player bypasses combat tagging, false otherwise
+     */
+    public boolean isBypassing(Player player) {
+        return get(player).bypassing();
+    }
+
+    /**
+     * Check if a player has the permission of a permission-allowed-commands group
+     *
+     * @param player The player to check
+     * @param group The index of the group, in config order
+     * @param permission The group's permission, checked directly for groups beyond the cached ones
+     * @return True if the player may use the group's commands during combat, false otherwise
+     */
+    public boolean hasAllowListGroup(Player player, int group, String permission) {
+        if (group >= MAX_CACHED_GROUPS) {
+            return player.hasPermission(permission);
+        }
+        return (get(player).allowListGroups() & (1L << group)) != 0;
+    }
+
+    private Capabilities get(Player player) {
+        Settings settings = plugin.getSettings();
+        Capabilities cached = capabilities.get(player.getUniqueId());
+        if (cached != null && cached.settings() == settings) {
+            return cached;
+        }
+
+        // Not resolved yet, or the settings were reloaded since
+        Capabilities resolved = resolve(player, settings);
+        if (player.isOnline()) {
+            capabilities.put(player.getUniqueId(), resolved);
+        }
+        return resolved;
+    }
+
+    private static Capabilities resolve(Player player, Settings settings) {
+        boolean bypassing = settings.allowBypass() && player.hasPermission(BYPASS_PERMISSION);
+
+        long groups = 0L;
+        int group = 0;
+        for (String permission : settings.permissionAllowedCommands().keySet()) {
+            if (group == MAX_CACHED_GROUPS) {
+                break;
+            }
+            if (player.hasPermission(permission)) {
+                groups |= 1L << group;
+            }
+            group++;
+        }
+        return new Capabilities(settings, bypassing, groups);
+    }
+
+    /**
+     * A player's resolved capabilities
+     *
+     * @param settings The settings they were resolved against
+     * @param bypassing Whether the player is never combat tagged
+     * @param allowListGroups Bit i is set if the player has the permission of the i-th permission-allowed-commands group
+     */
+    private record Capabilities(Settings settings, boolean bypassing, long allowListGroups) {
+    }
+}
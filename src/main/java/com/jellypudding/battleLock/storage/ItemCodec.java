@@ -0,0 +1,68 @@
+package com.jellypudding.battleLock.storage;
+
+import org.bukkit.inventory.ItemStack;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Compact binary encoding of an inventory: the array length, then slot index and
+ * Paper's binary item format for every non-empty slot.
+ */
+public final class ItemCodec {
+
+    private ItemCodec() {
+    }
+
+    /**
+     * Encode an inventory
+     *
+     * @param contents The inventory contents, may contain nulls
+     * @return The encoded inventory
+     */
+    public static byte[] encode(ItemStack[] contents) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeShort(contents.length);
+            for (int slot = 0; slot < contents.length; slot++) {
+                ItemStack item = contents[slot];
+                if (item == null || item.isEmpty()) {
+                    continue;
+                }
+
+                byte[] data = item.serializeAsBytes();
+                out.writeShort(slot);
+                out.writeInt(data.length);
+                out.write(data);
+            }
+            out.writeShort(-1);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decode an inventory
+     *
+     * @param data The encoded inventory
+     * @return The inventory contents, with nulls for empty slots
+     * @throws IOException If the data is malformed
+     */
+    public static ItemStack[] decode(byte[] data) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+            ItemStack[] contents = new ItemStack[in.readShort()];
+            int slot;
+            while ((slot = in.readShort()) >= 0) {
+                byte[] item = new byte[in.readInt()];
+                in.readFully(item);
+                contents[slot] = ItemStack.deserializeBytes(item);
+            }
+            return contents;
+        }
+    }
+}
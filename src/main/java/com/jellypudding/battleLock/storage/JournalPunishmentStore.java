@@ -0,0 +1,208 @@
+package com.jellypudding.battleLock.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Storage backend keeping every punishment change in a single append-only binary journal.
+ * <p>
+ * The file starts with an 8 byte header (magic, version) followed by fixed-size 32 byte records:
+ * UUID (16 bytes), flags (4 bytes), timestamp (8 bytes) and a CRC32 of the preceding 28 bytes.
+ * A record with the killed flag cleared is a tombstone. The journal is rewritten with only the
+ * live records once it holds more than twice as many records as there are live ones.
+ */
+public class JournalPunishmentStore implements PunishmentStore {
+
+    private static final int MAGIC = 0x424C504A; // "BLPJ"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+    private static final int RECORD_SIZE = 32;
+    private static final int CHECKSUM_OFFSET = 28;
+    private static final int FLAG_KILLED = 1;
+    private static final int COMPACT_MIN_RECORDS = 1024;
+
+    private final Path journal;
+    private final Logger logger;
+    private final Map<UUID, Long> live;
+    private FileChannel channel;
+    private long recordCount;
+
+    public JournalPunishmentStore(Path journal, Logger logger) {
+        this.journal = journal;
+        this.logger = logger;
+        this.live = new HashMap<>();
+    }
+
+    @Override
+    public Map<UUID, Long> loadAll() throws IOException {
+        live.clear();
+        recordCount = 0;
+
+        if (Files.exists(journal)) {
+            readJournal();
+            channel = FileChannel.open(journal, StandardOpenOption.WRITE);
+            channel.position(channel.size());
+        } else {
+            Files.createDirectories(journal.getParent());
+            channel = FileChannel.open(journal, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            writeFully(channel, header());
+            channel.force(true);
+        }
+
+        maybeCompact();
+        return new HashMap<>(live);
+    }
+
+    @Override
+    public long write(Collection<PunishmentRecord> records) throws IOException {
+        if (records.isEmpty()) {
+            return 0L;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(records.size() * RECORD_SIZE);
+        for (PunishmentRecord record : records) {
+            encode(buffer, record);
+        }
+        buffer.flip();
+        long written = buffer.remaining();
+        writeFully(channel, buffer);
+        channel.force(false);
+
+        for (PunishmentRecord record : records) {
+            if (record.killed()) {
+                live.put(record.playerId(), record.timestamp());
+            } else {
+                live.remove(record.playerId());
+            }
+        }
+        recordCount += records.size();
+
+        return written + maybeCompact();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.force(true);
+            channel.close();
+            channel = null;
+        }
+    }
+
+    /**
+     * Replay the journal in one sequential read, truncating a torn or corrupt tail
+     */
+    private void readJournal() throws IOException {
+        byte[] data = Files.readAllBytes(journal);
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+
+        if (data.length < HEADER_SIZE || buffer.getInt() != MAGIC) {
+            throw new IOException(journal + " is not a BattleLock punishment journal");
+        }
+        int version = buffer.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported punishment journal version " + version);
+        }
+
+        CRC32 crc = new CRC32();
+        while (buffer.remaining() >= RECORD_SIZE) {
+            int offset = buffer.position();
+            crc.reset();
+            crc.update(data, offset, CHECKSUM_OFFSET);
+
+            UUID playerId = new UUID(buffer.getLong(), buffer.getLong());
+            int flags = buffer.getInt();
+            long timestamp = buffer.getLong();
+            if (buffer.getInt() != (int) crc.getValue()) {
+                buffer.position(offset);
+                break;
+            }
+
+            if ((flags & FLAG_KILLED) != 0) {
+                live.put(playerId, timestamp);
+            } else {
+                live.remove(playerId);
+            }
+            recordCount++;
+        }
+
+        long validLength = HEADER_SIZE + recordCount * RECORD_SIZE;
+        if (validLength < data.length) {
+            logger.warning("Discarding " + (data.length - validLength) + " bytes of incomplete records at the end of " + journal.getFileName());
+            try (FileChannel truncate = FileChannel.open(journal, StandardOpenOption.WRITE)) {
+                truncate.truncate(validLength);
+                truncate.force(true);
+            }
+        }
+    }
+
+    /**
+     * Rewrite the journal with only the live records if it has grown too large
+     *
+     * @return The number of bytes written, or 0 if the journal was not compacted
+     */
+    private long maybeCompact() throws IOException {
+        if (recordCount < COMPACT_MIN_RECORDS || recordCount <= live.size() * 2L) {
+            return 0L;
+        }
+
+        long written;
+        Path compacted = journal.resolveSibling(journal.getFileName() + ".compact");
+        try (FileChannel out = FileChannel.open(compacted, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + live.size() * RECORD_SIZE);
+            buffer.put(header());
+            for (Map.Entry<UUID, Long> entry : live.entrySet()) {
+                encode(buffer, new PunishmentRecord(entry.getKey(), true, entry.getValue()));
+            }
+            buffer.flip();
+            written = buffer.remaining();
+            writeFully(out, buffer);
+            out.force(true);
+        }
+
+        channel.close();
+        Files.move(compacted, journal, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = FileChannel.open(journal, StandardOpenOption.WRITE);
+        channel.position(channel.size());
+
+        logger.fine("Compacted punishment journal from " + recordCount + " to " + live.size() + " records");
+        recordCount = live.size();
+        return written;
+    }
+
+    private static ByteBuffer header() {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).flip();
+        return header;
+    }
+
+    private static void encode(ByteBuffer buffer, PunishmentRecord record) {
+        int offset = buffer.position();
+        buffer.putLong(record.playerId().getMostSignificantBits());
+        buffer.putLong(record.playerId().getLeastSignificantBits());
+        buffer.putInt(record.killed() ? FLAG_KILLED : 0);
+        buffer.putLong(record.timestamp());
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), buffer.arrayOffset() + offset, CHECKSUM_OFFSET);
+        buffer.putInt((int) crc.getValue());
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
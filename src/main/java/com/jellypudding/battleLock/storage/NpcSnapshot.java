@@ -0,0 +1,24 @@
+package com.jellypudding.battleLock.storage;
+
+import java.util.UUID;
+
+/**
+ * Saved state of a live combat log NPC
+ *
+ * @param playerId The UUID of the combat logger
+ * @param playerName The name shown above the NPC
+ * @param entityId The UUID of the NPC entity when the snapshot was taken
+ * @param worldId The UUID of the world the NPC is in
+ * @param x The X coordinate of the NPC
+ * @param y The Y coordinate of the NPC
+ * @param z The Z coordinate of the NPC
+ * @param yaw The yaw of the NPC
+ * @param pitch The pitch of the NPC
+ * @param health The health of the NPC
+ * @param remainingMillis How long the NPC had left before despawning
+ * @param inventory The combat logger's inventory, see {@link ItemCodec}
+ */
+public record NpcSnapshot(UUID playerId, String playerName, UUID entityId, UUID worldId,
+                          double x, double y, double z, float yaw, float pitch,
+                          double health, long remainingMillis, byte[] inventory) {
+}
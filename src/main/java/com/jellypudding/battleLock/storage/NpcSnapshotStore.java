@@ -0,0 +1,195 @@
+package com.jellypudding.battleLock.storage;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Persists the live combat log NPCs so they survive restarts and crashes.
+ * <p>
+ * Snapshots are written whole to npcs.dat on a background thread, replacing the previous one atomically.
+ * A session marker file exists while the plugin is enabled, so a marker found at startup means the
+ * previous session ended without a clean shutdown.
+ */
+public class NpcSnapshotStore {
+
+    private static final int MAGIC = 0x424C4E53; // "BLNS"
+    private static final int VERSION = 1;
+
+    private final Path snapshotFile;
+    private final Path sessionMarker;
+    private final Logger logger;
+    private final ExecutorService writer;
+    private Future<?> pendingWrite;
+
+    public NpcSnapshotStore(Path dataFolder, Logger logger) {
+        this.snapshotFile = dataFolder.resolve("npcs.dat");
+        this.sessionMarker = dataFolder.resolve("session.lock");
+        this.logger = logger;
+        this.writer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "BattleLock-NpcSnapshotWriter");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Start a session by creating the session marker
+     *
+     * @return True if the previous session did not shut down cleanly, false otherwise
+     */
+    public boolean beginSession() {
+        boolean unclean = Files.exists(sessionMarker);
+        try {
+            Files.createDirectories(sessionMarker.getParent());
+            if (!unclean) {
+                Files.createFile(sessionMarker);
+            }
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Could not create session marker " + sessionMarker, e);
+        }
+        return unclean;
+    }
+
+    /**
+     * End the session - waits for outstanding writes and removes the session marker
+     */
+    public void endSession() {
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(10, TimeUnit.SECONDS)) {
+                logger.severe("Timed out while saving combat log NPCs");
+                return;
+            }
+            Files.deleteIfExists(sessionMarker);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Could not remove session marker " + sessionMarker, e);
+        }
+    }
+
+    /**
+     * Read the last saved snapshot
+     *
+     * @return The saved NPCs, or an empty list if there are none
+     */
+    public List<NpcSnapshot> load() {
+        List<NpcSnapshot> snapshots = new ArrayList<>();
+        if (!Files.exists(snapshotFile)) {
+            return snapshots;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshotFile)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                logger.warning(snapshotFile.getFileName() + " is not a valid combat log NPC snapshot, ignoring it");
+                return snapshots;
+            }
+
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                UUID playerId = new UUID(in.readLong(), in.readLong());
+                String playerName = in.readUTF();
+                UUID entityId = new UUID(in.readLong(), in.readLong());
+                UUID worldId = new UUID(in.readLong(), in.readLong());
+                double x = in.readDouble();
+                double y = in.readDouble();
+                double z = in.readDouble();
+                float yaw = in.readFloat();
+                float pitch = in.readFloat();
+                double health = in.readDouble();
+                long remainingMillis = in.readLong();
+                byte[] inventory = new byte[in.readInt()];
+                in.readFully(inventory);
+
+                snapshots.add(new NpcSnapshot(playerId, playerName, entityId, worldId, x, y, z, yaw, pitch,
+                        health, remainingMillis, inventory));
+            }
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Could not read combat log NPC snapshot, recovered " + snapshots.size() + " NPCs", e);
+        }
+        return snapshots;
+    }
+
+    /**
+     * Queue a snapshot to be written on the background thread.
+     * Snapshots still waiting to be written are superseded rather than written twice.
+     *
+     * @param snapshots The live NPCs
+     */
+    public synchronized void saveAsync(List<NpcSnapshot> snapshots) {
+        if (pendingWrite != null && pendingWrite.cancel(false)) {
+            logger.fine("Superseded an unwritten combat log NPC snapshot");
+        }
+        pendingWrite = writer.submit(() -> write(snapshots));
+    }
+
+    /**
+     * Write a snapshot and wait for it to reach the disk
+     *
+     * @param snapshots The live NPCs
+     */
+    public void saveNow(List<NpcSnapshot> snapshots) {
+        saveAsync(snapshots);
+        try {
+            pendingWrite.get(10, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Could not save combat log NPCs", e);
+        }
+    }
+
+    private void write(List<NpcSnapshot> snapshots) {
+        Path tempFile = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+
+        try (FileOutputStream file = new FileOutputStream(tempFile.toFile());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(snapshots.size());
+            for (NpcSnapshot snapshot : snapshots) {
+                out.writeLong(snapshot.playerId().getMostSignificantBits());
+                out.writeLong(snapshot.playerId().getLeastSignificantBits());
+                out.writeUTF(snapshot.playerName());
+                out.writeLong(snapshot.entityId().getMostSignificantBits());
+                out.writeLong(snapshot.entityId().getLeastSignificantBits());
+                out.writeLong(snapshot.worldId().getMostSignificantBits());
+                out.writeLong(snapshot.worldId().getLeastSignificantBits());
+                out.writeDouble(snapshot.x());
+                out.writeDouble(snapshot.y());
+                out.writeDouble(snapshot.z());
+                out.writeFloat(snapshot.yaw());
+                out.writeFloat(snapshot.pitch());
+                out.writeDouble(snapshot.health());
+                out.writeLong(snapshot.remainingMillis());
+                out.writeInt(snapshot.inventory().length);
+                out.write(snapshot.inventory());
+            }
+            out.flush();
+            file.getFD().sync();
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Could not save combat log NPCs", e);
+            return;
+        }
+
+        try {
+            Files.move(tempFile, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Could not save combat log NPCs", e);
+        }
+    }
+}
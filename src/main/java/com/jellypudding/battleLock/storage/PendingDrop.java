@@ -0,0 +1,15 @@
+package com.jellypudding.battleLock.storage;
+
+import java.util.UUID;
+
+/**
+ * Items of a killed combat log NPC that were not dropped before shutdown
+ *
+ * @param worldId The UUID of the world to drop them in
+ * @param x The x coordinate of the drop location
+ * @param y The y coordinate of the drop location
+ * @param z The z coordinate of the drop location
+ * @param items The items, encoded with {@link ItemCodec}
+ */
+public record PendingDrop(UUID worldId, double x, double y, double z, byte[] items) {
+}
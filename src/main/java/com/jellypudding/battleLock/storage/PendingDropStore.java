@@ -0,0 +1,110 @@
+package com.jellypudding.battleLock.storage;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps the items of killed combat log NPCs that could not be dropped before shutdown in drops.dat,
+ * so they are dropped on the next start instead of being lost.
+ * The file is removed once it has been read, so items are never dropped twice.
+ */
+public class PendingDropStore {
+
+    private static final int MAGIC = 0x424C4452; // "BLDR"
+    private static final int VERSION = 1;
+
+    private final Path dropFile;
+    private final Logger logger;
+
+    public PendingDropStore(Path dataFolder, Logger logger) {
+        this.dropFile = dataFolder.resolve("drops.dat");
+        this.logger = logger;
+    }
+
+    /**
+     * Read and remove the drops saved by the previous session
+     *
+     * @return The saved drops, or an empty list if there are none
+     */
+    public List<PendingDrop> take() {
+        List<PendingDrop> drops = new ArrayList<>();
+        if (!Files.exists(dropFile)) {
+            return drops;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(dropFile)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                logger.warning(dropFile.getFileName() + " is not a valid pending drop file, ignoring it");
+                return drops;
+            }
+
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                UUID worldId = new UUID(in.readLong(), in.readLong());
+                double x = in.readDouble();
+                double y = in.readDouble();
+                double z = in.readDouble();
+                byte[] items = new byte[in.readInt()];
+                in.readFully(items);
+                drops.add(new PendingDrop(worldId, x, y, z, items));
+            }
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Could not read pending NPC drops, recovered " + drops.size(), e);
+        }
+
+        try {
+            Files.delete(dropFile);
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Could not remove " + dropFile.getFileName() + ", its items may be dropped again on the next start", e);
+        }
+        return drops;
+    }
+
+    /**
+     * Write the drops that are still pending, replacing any previous file atomically
+     *
+     * @param drops The pending drops
+     */
+    public void save(List<PendingDrop> drops) {
+        if (drops.isEmpty()) {
+            return;
+        }
+
+        Path tempFile = dropFile.resolveSibling(dropFile.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(dropFile.getParent());
+            try (FileOutputStream file = new FileOutputStream(tempFile.toFile());
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(drops.size());
+                for (PendingDrop drop : drops) {
+                    out.writeLong(drop.worldId().getMostSignificantBits());
+                    out.writeLong(drop.worldId().getLeastSignificantBits());
+                    out.writeDouble(drop.x());
+                    out.writeDouble(drop.y());
+                    out.writeDouble(drop.z());
+                    out.writeInt(drop.items().length);
+                    out.write(drop.items());
+                }
+                out.flush();
+                file.getFD().sync();
+            }
+            Files.move(tempFile, dropFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Could not save " + drops.size() + " pending NPC drops", e);
+        }
+    }
+}
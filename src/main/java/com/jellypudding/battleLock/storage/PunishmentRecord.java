@@ -0,0 +1,13 @@
+package com.jellypudding.battleLock.storage;
+
+import java.util.UUID;
+
+/**
+ * A change to a player's combat log punishment state
+ *
+ * @param playerId The UUID of the combat logger
+ * @param killed True if their NPC was killed, false if the record was cleared
+ * @param timestamp When the change happened, in epoch milliseconds
+ */
+public record PunishmentRecord(UUID playerId, boolean killed, long timestamp) {
+}
@@ -0,0 +1,37 @@
+package com.jellypudding.battleLock.storage;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Storage backend for combat log punishment records.
+ * Implementations are only ever called from the DataManager writer thread.
+ */
+public interface PunishmentStore {
+
+    /**
+     * Read every active punishment record
+     *
+     * @return Player UUID -> time the NPC was killed, in epoch milliseconds
+     * @throws IOException If the records could not be read
+     */
+    Map<UUID, Long> loadAll() throws IOException;
+
+    /**
+     * Durably apply a batch of record changes
+     *
+     * @param records The changes to apply, at most one per player
+     * @return The number of bytes written
+     * @throws IOException If the changes could not be written
+     */
+    long write(Collection<PunishmentRecord> records) throws IOException;
+
+    /**
+     * Release any open files
+     *
+     * @throws IOException If the store could not be closed cleanly
+     */
+    void close() throws IOException;
+}
@@ -0,0 +1,124 @@
+package com.jellypudding.battleLock.storage;
+
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+/**
+ * Legacy storage backend keeping one playerdata/&lt;uuid&gt;.yml file per punished player
+ */
+public class YamlPunishmentStore implements PunishmentStore {
+
+    private final File dataFolder;
+    private final Logger logger;
+
+    public YamlPunishmentStore(File dataFolder, Logger logger) {
+        this.dataFolder = dataFolder;
+        this.logger = logger;
+        if (!dataFolder.exists()) {
+            dataFolder.mkdirs();
+        }
+    }
+
+    /**
+     * Check if there are any legacy records to import
+     *
+     * @param dataFolder The legacy playerdata folder
+     * @return True if the folder contains player files, false otherwise
+     */
+    public static boolean hasRecords(File dataFolder) {
+        String[] names = dataFolder.list((dir, name) -> name.endsWith(".yml"));
+        return names != null && names.length > 0;
+    }
+
+    @Override
+    public Map<UUID, Long> loadAll() {
+        Map<UUID, Long> records = new HashMap<>();
+        File[] files = dataFolder.listFiles((dir, name) -> name.endsWith(".yml"));
+        if (files == null) {
+            return records;
+        }
+
+        for (File file : files) {
+            String name = file.getName();
+            try {
+                UUID playerUuid = UUID.fromString(name.substring(0, name.length() - 4));
+                YamlConfiguration config = YamlConfiguration.loadConfiguration(file);
+                if (config.getBoolean("killed", false)) {
+                    records.put(playerUuid, config.getLong("timestamp", file.lastModified()));
+                }
+            } catch (IllegalArgumentException e) {
+                logger.warning("Ignoring unexpected file in playerdata: " + name);
+            }
+        }
+        return records;
+    }
+
+    @Override
+    public long write(Collection<PunishmentRecord> records) throws IOException {
+        long written = 0L;
+        for (PunishmentRecord record : records) {
+            if (record.killed()) {
+                written += writeRecord(record.playerId(), record.timestamp());
+            } else {
+                deleteRecord(record.playerId());
+            }
+        }
+        return written;
+    }
+
+    @Override
+    public void close() {
+        // Nothing is kept open between writes
+    }
+
+    private long writeRecord(UUID playerUuid, long timestamp) throws IOException {
+        File playerFile = getPlayerFile(playerUuid);
+        File tempFile = new File(dataFolder, playerUuid + ".yml.tmp");
+        YamlConfiguration config = new YamlConfiguration();
+
+        config.set("killed", true);
+        config.set("timestamp", timestamp);
+
+        byte[] data = config.saveToString().getBytes(StandardCharsets.UTF_8);
+        try (FileOutputStream out = new FileOutputStream(tempFile)) {
+            out.write(data);
+            out.getFD().sync();
+        }
+        Files.move(tempFile.toPath(), playerFile.toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return data.length;
+    }
+
+    private void deleteRecord(UUID playerUuid) {
+        // Delete the player file
+        File playerFile = getPlayerFile(playerUuid);
+        if (playerFile.exists()) {
+            if (playerFile.delete()) {
+                logger.fine("Deleted player data file for " + playerUuid);
+            } else {
+                logger.warning("Failed to delete player data file for " + playerUuid);
+            }
+        }
+    }
+
+    /**
+     * Get the File object for a player's data file
+     *
+     * @param playerUuid The UUID of the player
+     * @return The File object for the player's data
+     */
+    private File getPlayerFile(UUID playerUuid) {
+        return new File(dataFolder, playerUuid.toString() + ".yml");
+    }
+}
@@ -0,0 +1,207 @@
+package com.jellypudding.battleLock.sync;
+
+import com.jellypudding.battleLock.BattleLock;
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shares combat tags and punishment records with the other servers of a network, so players cannot
+ * escape combat by switching servers.
+ * <p>
+ * Local changes are coalesced per player and sent once per tick as a single batch. Updates received
+ * from other servers are applied without being published again, and each batch carries the UUID of
+ * the server that made it so a transport that echoes messages back cannot cause a loop.
+ */
+public class CombatSync {
+
+    private final BattleLock plugin;
+    private final SyncTransport transport; // Null when syncing is disabled
+    private final UUID serverId;
+    private final Map<UUID, SyncUpdate> pendingTags; // Player UUID -> latest TAG (value is the nanoTime deadline) or UNTAG
+    private final Map<UUID, SyncUpdate> pendingPunishments; // Player UUID -> latest PUNISH or PUNISH_CLEAR
+    private ScheduledTask flushTask;
+
+    /**
+     * Create the sync layer
+     *
+     * @param plugin The plugin
+     * @param transport The transport to send updates over, or null to keep all state local
+     */
+    public CombatSync(BattleLock plugin, SyncTransport transport) {
+        this.plugin = plugin;
+        this.transport = transport;
+        this.serverId = UUID.randomUUID();
+        this.pendingTags = new ConcurrentHashMap<>();
+        this.pendingPunishments = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Start receiving updates and sending local changes every tick
+     */
+    public void start() {
+        if (transport == null || flushTask != null) {
+            return;
+        }
+
+        transport.start(this::receive);
+        flushTask = plugin.getServer().getGlobalRegionScheduler().runAtFixedRate(plugin, task -> flush(), 1L, 1L);
+    }
+
+    /**
+     * Send any outstanding changes and close the transport
+     */
+    public void shutdown() {
+        if (flushTask == null) {
+            return;
+        }
+
+        flushTask.cancel();
+        flushTask = null;
+        flush();
+        transport.close();
+    }
+
+    /**
+     * Check if combat state is shared with other servers
+     *
+     * @return True if a transport is configured, false otherwise
+     */
+    public boolean isEnabled() {
+        return transport != null;
+    }
+
+    /**
+     * Publish a local combat tag
+     *
+     * @param playerId The UUID of the tagged player
+     * @param deadline The nanoTime the tag runs out
+     */
+    public void publishTag(UUID playerId, long deadline) {
+        if (transport != null) {
+            pendingTags.put(playerId, new SyncUpdate(SyncUpdate.Type.TAG, playerId, deadline));
+        }
+    }
+
+    /**
+     * Publish the removal of a local combat tag
+     *
+     * @param playerId The UUID of the untagged player
+     */
+    public void publishUntag(UUID playerId) {
+        if (transport != null) {
+            pendingTags.put(playerId, new SyncUpdate(SyncUpdate.Type.UNTAG, playerId, 0L));
+        }
+    }
+
+    /**
+     * Publish a new punishment record. Only sent when the servers share inventories, otherwise the
+     * punishment is carried out by the server holding the NPC's inventory when the player returns there.
+     *
+     * @param playerId The UUID of the player whose NPC was killed
+     * @param killedAt The time the NPC was killed, in epoch milliseconds
+     */
+    public void publishPunishment(UUID playerId, long killedAt) {
+        if (transport != null && plugin.getSettings().syncSharedInventories()) {
+            pendingPunishments.put(playerId, new SyncUpdate(SyncUpdate.Type.PUNISH, playerId, killedAt));
+        }
+    }
+
+    /**
+     * Publish that a punishment has been carried out
+     *
+     * @param playerId The UUID of the punished player
+     */
+    public void publishPunishmentCleared(UUID playerId) {
+        if (transport != null && plugin.getSettings().syncSharedInventories()) {
+            pendingPunishments.put(playerId, new SyncUpdate(SyncUpdate.Type.PUNISH_CLEAR, playerId, 0L));
+        }
+    }
+
+    /**
+     * Send the changes made since the last flush as one batch.
+     * Changes are held back while the transport cannot send, e.g. on an empty server.
+     */
+    private void flush() {
+        if ((pendingTags.isEmpty() && pendingPunishments.isEmpty()) || !transport.canSend()) {
+            return;
+        }
+
+        List<SyncUpdate> batch = new ArrayList<>();
+        long now = System.nanoTime();
+        for (SyncUpdate update : pendingTags.values()) {
+            // Only take the update if it wasn't replaced in the meantime
+            if (!pendingTags.remove(update.playerId(), update)) {
+                continue;
+            }
+            if (update.type() == SyncUpdate.Type.TAG) {
+                long remaining = update.value() - now;
+                if (remaining > 0) {
+                    // Deadlines are local nanoTime values, other servers get the time left instead
+                    batch.add(new SyncUpdate(SyncUpdate.Type.TAG, update.playerId(), TimeUnit.NANOSECONDS.toMillis(remaining)));
+                }
+            } else {
+                batch.add(update);
+            }
+        }
+        for (SyncUpdate update : pendingPunishments.values()) {
+            if (pendingPunishments.remove(update.playerId(), update)) {
+                batch.add(update);
+            }
+        }
+
+        for (byte[] message : SyncCodec.encode(serverId, batch)) {
+            transport.send(message);
+        }
+    }
+
+    private void receive(byte[] message) {
+        SyncCodec.SyncBatch batch;
+        try {
+            batch = SyncCodec.decode(message);
+        } catch (IllegalArgumentException e) {
+            plugin.getLogger().warning("Ignoring a combat sync message: " + e.getMessage());
+            return;
+        }
+
+        if (serverId.equals(batch.origin())) {
+            return;
+        }
+
+        for (SyncUpdate update : batch.updates()) {
+            apply(update);
+        }
+    }
+
+    private void apply(SyncUpdate update) {
+        UUID playerId = update.playerId();
+        switch (update.type()) {
+            case TAG -> plugin.getCombatManager().applyRemoteTag(playerId, TimeUnit.MILLISECONDS.toNanos(update.value()));
+            case UNTAG -> plugin.getCombatManager().applyRemoteUntag(playerId);
+            case PUNISH -> {
+                // Without shared inventories the items at stake are only on the server that held the NPC
+                if (!plugin.getSettings().syncSharedInventories()) {
+                    return;
+                }
+                plugin.getDataManager().applyRemotePunishment(playerId, update.value());
+
+                // The NPC was killed while its owner was already on this server
+                Player player = plugin.getServer().getPlayer(playerId);
+                if (player != null) {
+                    player.getScheduler().run(plugin, task -> plugin.getCombatLogManager().handlePlayerReturn(player), null);
+                }
+            }
+            case PUNISH_CLEAR -> {
+                if (plugin.getSettings().syncSharedInventories()) {
+                    plugin.getDataManager().applyRemotePunishmentCleared(playerId);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.jellypudding.battleLock.sync;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * In-process transport that delivers messages to every other transport on the same {@link Hub}.
+ * Used to try out syncing without a proxy, e.g. with several simulated servers in one JVM.
+ */
+public class LoopbackTransport implements SyncTransport {
+
+    private static final Hub DEFAULT_HUB = new Hub();
+
+    private final Hub hub;
+    private volatile Consumer<byte[]> receiver;
+
+    /**
+     * Create a transport on the JVM-wide hub
+     */
+    public LoopbackTransport() {
+        this(DEFAULT_HUB);
+    }
+
+    /**
+     * Create a transport on a hub
+     *
+     * @param hub The hub connecting the transports
+     */
+    public LoopbackTransport(Hub hub) {
+        this.hub = hub;
+    }
+
+    @Override
+    public void start(Consumer<byte[]> receiver) {
+        this.receiver = receiver;
+        hub.transports.add(this);
+    }
+
+    @Override
+    public boolean canSend() {
+        return receiver != null;
+    }
+
+    @Override
+    public void send(byte[] message) {
+        for (LoopbackTransport transport : hub.transports) {
+            Consumer<byte[]> target = transport.receiver;
+            if (transport != this && target != null) {
+                target.accept(message.clone());
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        hub.transports.remove(this);
+        receiver = null;
+    }
+
+    /**
+     * A set of connected loopback transports
+     */
+    public static final class Hub {
+        private final List<LoopbackTransport> transports = new CopyOnWriteArrayList<>();
+    }
+}
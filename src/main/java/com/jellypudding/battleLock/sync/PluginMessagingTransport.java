@@ -0,0 +1,94 @@
+package com.jellypudding.battleLock.sync;
+
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.messaging.Messenger;
+import org.bukkit.plugin.messaging.PluginMessageListener;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+
+/**
+ * Sends batches to the other backends through the proxy, using the BungeeCord "Forward" plugin message.
+ * Works with BungeeCord and Velocity. Plugin messages travel over a player's connection, so nothing can be
+ * sent while the server is empty.
+ */
+public class PluginMessagingTransport implements SyncTransport, PluginMessageListener {
+
+    private static final String CHANNEL = "BungeeCord";
+    private static final String SUBCHANNEL = "BattleLock";
+
+    private final Plugin plugin;
+    private volatile Consumer<byte[]> receiver;
+
+    public PluginMessagingTransport(Plugin plugin) {
+        this.plugin = plugin;
+    }
+
+    @Override
+    public void start(Consumer<byte[]> receiver) {
+        this.receiver = receiver;
+        Messenger messenger = plugin.getServer().getMessenger();
+        messenger.registerOutgoingPluginChannel(plugin, CHANNEL);
+        messenger.registerIncomingPluginChannel(plugin, CHANNEL, this);
+    }
+
+    @Override
+    public boolean canSend() {
+        return !plugin.getServer().getOnlinePlayers().isEmpty();
+    }
+
+    @Override
+    public void send(byte[] message) {
+        Iterator<? extends Player> players = plugin.getServer().getOnlinePlayers().iterator();
+        if (!players.hasNext()) {
+            return;
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(message.length + 32);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeUTF("Forward");
+            out.writeUTF("ALL");
+            out.writeUTF(SUBCHANNEL);
+            out.writeShort(message.length);
+            out.write(message);
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // Cannot happen when writing to memory
+        }
+        players.next().sendPluginMessage(plugin, CHANNEL, bytes.toByteArray());
+    }
+
+    @Override
+    public void onPluginMessageReceived(String channel, Player player, byte[] payload) {
+        Consumer<byte[]> target = receiver;
+        if (target == null || !CHANNEL.equals(channel)) {
+            return;
+        }
+
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+            // Other plugins share the channel, only forwarded BattleLock messages are ours
+            if (!SUBCHANNEL.equals(in.readUTF())) {
+                return;
+            }
+            byte[] message = new byte[in.readUnsignedShort()];
+            in.readFully(message);
+            target.accept(message);
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.FINE, "Ignoring a malformed " + CHANNEL + " plugin message", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        receiver = null;
+        Messenger messenger = plugin.getServer().getMessenger();
+        messenger.unregisterIncomingPluginChannel(plugin, CHANNEL, this);
+        messenger.unregisterOutgoingPluginChannel(plugin, CHANNEL);
+    }
+}
@@ -0,0 +1,98 @@
+package com.jellypudding.battleLock.sync;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Binary encoding of combat state batches.
+ * <p>
+ * A message is a 20 byte header (version, origin server UUID, update count) followed by
+ * 25 bytes per update (type, player UUID, value). Large batches are split so every message
+ * fits in a single plugin message.
+ */
+public final class SyncCodec {
+
+    public static final int MAX_MESSAGE_SIZE = 30000; // Plugin messages are limited to 32766 bytes
+    private static final byte VERSION = 1;
+    private static final int HEADER_SIZE = 1 + 16 + 2;
+    private static final int UPDATE_SIZE = 1 + 16 + 8;
+    private static final int MAX_UPDATES = (MAX_MESSAGE_SIZE - HEADER_SIZE) / UPDATE_SIZE;
+
+    private SyncCodec() {
+    }
+
+    /**
+     * Encode a batch of updates
+     *
+     * @param origin The UUID of the sending server
+     * @param updates The updates
+     * @return One or more messages holding the updates in order
+     */
+    public static List<byte[]> encode(UUID origin, List<SyncUpdate> updates) {
+        List<byte[]> messages = new ArrayList<>();
+        for (int start = 0; start < updates.size(); start += MAX_UPDATES) {
+            int count = Math.min(MAX_UPDATES, updates.size() - start);
+            ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + count * UPDATE_SIZE);
+            buffer.put(VERSION);
+            buffer.putLong(origin.getMostSignificantBits());
+            buffer.putLong(origin.getLeastSignificantBits());
+            buffer.putShort((short) count);
+
+            for (int i = start; i < start + count; i++) {
+                SyncUpdate update = updates.get(i);
+                buffer.put((byte) update.type().ordinal());
+                buffer.putLong(update.playerId().getMostSignificantBits());
+                buffer.putLong(update.playerId().getLeastSignificantBits());
+                buffer.putLong(update.value());
+            }
+            messages.add(buffer.array());
+        }
+        return messages;
+    }
+
+    /**
+     * Decode a message
+     *
+     * @param message The message
+     * @return The batch
+     * @throws IllegalArgumentException If the message is malformed or from an unsupported version
+     */
+    public static SyncBatch decode(byte[] message) {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(message);
+            byte version = buffer.get();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported sync message version " + version);
+            }
+
+            UUID origin = new UUID(buffer.getLong(), buffer.getLong());
+            int count = Short.toUnsignedInt(buffer.getShort());
+            List<SyncUpdate> updates = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                int typeId = buffer.get();
+                UUID playerId = new UUID(buffer.getLong(), buffer.getLong());
+                long value = buffer.getLong();
+
+                SyncUpdate.Type type = SyncUpdate.Type.byId(typeId);
+                if (type != null) {
+                    updates.add(new SyncUpdate(type, playerId, value));
+                }
+            }
+            return new SyncBatch(origin, updates);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated sync message", e);
+        }
+    }
+
+    /**
+     * A decoded message
+     *
+     * @param origin The UUID of the server that sent it
+     * @param updates The updates, in the order they were made
+     */
+    public record SyncBatch(UUID origin, List<SyncUpdate> updates) {
+    }
+}
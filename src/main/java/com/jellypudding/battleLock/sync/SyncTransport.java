@@ -0,0 +1,36 @@
+package com.jellypudding.battleLock.sync;
+
+import java.util.function.Consumer;
+
+/**
+ * Carries encoded combat state batches between servers.
+ * Implementations deliver whole messages, but need not guarantee delivery or ordering.
+ */
+public interface SyncTransport {
+
+    /**
+     * Start receiving messages
+     *
+     * @param receiver Called with every message received from another server, possibly on any thread
+     */
+    void start(Consumer<byte[]> receiver);
+
+    /**
+     * Check if messages can be sent right now
+     *
+     * @return True if the transport is able to send, false if updates should be held back
+     */
+    boolean canSend();
+
+    /**
+     * Send a message to every other server
+     *
+     * @param message The encoded batch, at most {@link SyncCodec#MAX_MESSAGE_SIZE} bytes
+     */
+    void send(byte[] message);
+
+    /**
+     * Stop receiving messages and release any resources
+     */
+    void close();
+}
@@ -0,0 +1,33 @@
+package com.jellypudding.battleLock.sync;
+
+import java.util.UUID;
+
+/**
+ * A single combat state change shared with the other servers
+ *
+ * @param type The kind of change
+ * @param playerId The UUID of the player it applies to
+ * @param value The remaining tag time in milliseconds for tags, the kill time in epoch milliseconds
+ *              for punishments, 0 otherwise
+ */
+public record SyncUpdate(Type type, UUID playerId, long value) {
+
+    public enum Type {
+        TAG,
+        UNTAG,
+        PUNISH,
+        PUNISH_CLEAR;
+
+        private static final Type[] VALUES = values();
+
+        /**
+         * Look up a type by its wire id
+         *
+         * @param id The wire id
+         * @return The type, or null if the id is unknown
+         */
+        static Type byId(int id) {
+            return id >= 0 && id < VALUES.length ? VALUES[id] : null;
+        }
+    }
+}
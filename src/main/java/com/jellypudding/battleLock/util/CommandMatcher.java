@@ -0,0 +1,132 @@
+package com.jellypudding.battleLock.util;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Immutable case-insensitive set of command labels.
+ * Labels are looked up straight from the command message without allocating: the label is
+ * hashed in place and compared with a single probe of an open-addressing table in the common case.
+ */
+public final class CommandMatcher {
+
+    private static final CommandMatcher EMPTY = new CommandMatcher(Set.of());
+
+    private final String[] labels;
+    private final int[] hashes;
+    private final int mask;
+    private final int size;
+
+    private CommandMatcher(Set<String> labels) {
+        int capacity = Integer.highestOneBit(Math.max(2, labels.size() * 2 - 1)) << 1;
+        this.labels = new String[capacity];
+        this.hashes = new int[capacity];
+        this.mask = capacity - 1;
+        this.size = labels.size();
+
+        for (String label : labels) {
+            int hash = hash(label, 0, label.length());
+            int index = spread(hash) & mask;
+            while (this.labels[index] != null) {
+                index = (index + 1) & mask;
+            }
+            this.labels[index] = label;
+            this.hashes[index] = hash;
+        }
+    }
+
+    /**
+     * Compile a set of command labels
+     *
+     * @param labels The labels to match, in any case
+     * @return The matcher
+     */
+    public static CommandMatcher of(Collection<String> labels) {
+        if (labels.isEmpty()) {
+            return EMPTY;
+        }
+
+        Set<String> normalised = new LinkedHashSet<>();
+        for (String label : labels) {
+            String trimmed = label.trim();
+            if (trimmed.startsWith("/")) {
+                trimmed = trimmed.substring(1);
+            }
+            if (!trimmed.isEmpty()) {
+                normalised.add(trimmed.toLowerCase(Locale.ROOT));
+            }
+        }
+        return new CommandMatcher(normalised);
+    }
+
+    /**
+     * Get an empty matcher
+     *
+     * @return A matcher that matches nothing
+     */
+    public static CommandMatcher empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Check if the label of a command message is in this set
+     *
+     * @param message The command message, e.g. "/msg Steve hi"
+     * @return True if the command's label matches, false otherwise
+     */
+    public boolean matchesCommand(String message) {
+        int start = !message.isEmpty() && message.charAt(0) == '/' ? 1 : 0;
+        int end = message.indexOf(' ', start);
+        return matches(message, start, end < 0 ? message.length() : end);
+    }
+
+    /**
+     * Check if a region of a string is one of the labels in this set
+     *
+     * @param text The text containing the label
+     * @param start The start of the label (inclusive)
+     * @param end The end of the label (exclusive)
+     * @return True if the label matches, false otherwise
+     */
+    public boolean matches(String text, int start, int end) {
+        if (size == 0 || end <= start) {
+            return false;
+        }
+
+        int length = end - start;
+        int hash = hash(text, start, end);
+        int index = spread(hash) & mask;
+
+        String label;
+        while ((label = labels[index]) != null) {
+            if (hashes[index] == hash && label.length() == length && label.regionMatches(true, 0, text, start, length)) {
+                return true;
+            }
+            index = (index + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * Get the number of labels in this set
+     *
+     * @return The number of labels
+     */
+    public int size() {
+        return size;
+    }
+
+    private static int hash(String text, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + Character.toLowerCase(text.charAt(i));
+        }
+        return hash;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
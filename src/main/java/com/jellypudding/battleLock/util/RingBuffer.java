@@ -0,0 +1,99 @@
+package com.jellypudding.battleLock.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free queue for many producers and a single consumer.
+ * <p>
+ * Each slot carries a sequence number: producers claim a slot with a single compare-and-set on the
+ * tail and publish it by advancing the slot's sequence, so an offer never blocks and never allocates.
+ * When the buffer is full the offer fails instead of waiting.
+ *
+ * @param <E> The element type
+ */
+public final class RingBuffer<E> {
+
+    private final AtomicReferenceArray<E> items;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail; // Next position producers claim
+    private long head; // Next position the consumer reads, only touched by the consumer
+
+    /**
+     * Create a ring buffer
+     *
+     * @param capacity The minimum capacity, rounded up to a power of two
+     */
+    public RingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.items = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        this.mask = size - 1;
+        this.tail = new AtomicLong();
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Add an element. Safe to call from any thread.
+     *
+     * @param element The element to add
+     * @return True if the element was added, false if the buffer is full
+     */
+    public boolean offer(E element) {
+        for (;;) {
+            long position = tail.get();
+            int index = (int) position & mask;
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    items.lazySet(index, element);
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+            } else if (difference < 0) {
+                return false;
+            }
+            // Another producer claimed the slot first, try the next one
+        }
+    }
+
+    /**
+     * Remove the oldest element. Must only be called from the consumer thread.
+     *
+     * @return The element, or null if the buffer is empty
+     */
+    public E poll() {
+        int index = (int) head & mask;
+        if (sequences.get(index) != head + 1) {
+            return null;
+        }
+
+        E element = items.get(index);
+        items.lazySet(index, null);
+        sequences.set(index, head + mask + 1);
+        head++;
+        return element;
+    }
+
+    /**
+     * Check if the buffer is empty. Must only be called from the consumer thread.
+     *
+     * @return True if there is nothing to poll, false otherwise
+     */
+    public boolean isEmpty() {
+        return sequences.get((int) head & mask) != head + 1;
+    }
+
+    /**
+     * Get the capacity
+     *
+     * @return The number of elements the buffer holds
+     */
+    public int capacity() {
+        return mask + 1;
+    }
+}
@@ -0,0 +1,226 @@
+package com.jellypudding.battleLock.util;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel keyed by an arbitrary key.
+ * Scheduling, rescheduling and cancelling are O(1); expiry is O(1) amortised per entry.
+ * Each key has at most one pending deadline - scheduling it again moves the existing entry.
+ * <p>
+ * The wheel is not thread-safe and must be driven from a single thread.
+ *
+ * @param <K> The key type
+ */
+public final class TimingWheel<K> {
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+    private static final long MAX_DELTA = (1L << (SLOT_BITS * LEVELS)) - 1;
+
+    private final long tickDuration;
+    private final Node<K>[][] slots;
+    private final Map<K, Node<K>> nodes;
+    private long currentTick;
+
+    /**
+     * Create a timing wheel
+     *
+     * @param tickDuration The length of one wheel tick, in the same unit as the deadlines
+     * @param now The current time, in the same unit as the deadlines
+     */
+    @SuppressWarnings("unchecked")
+    public TimingWheel(long tickDuration, long now) {
+        if (tickDuration <= 0) {
+            throw new IllegalArgumentException("Tick duration must be positive");
+        }
+        this.tickDuration = tickDuration;
+        this.slots = new Node[LEVELS][SLOTS];
+        this.nodes = new HashMap<>();
+        this.currentTick = Math.floorDiv(now, tickDuration);
+    }
+
+    /**
+     * Schedule a key to expire at the given deadline, replacing any pending deadline for it
+     *
+     * @param key The key to schedule
+     * @param deadline The time at which the key expires
+     */
+    public void schedule(K key, long deadline) {
+        Node<K> node = nodes.get(key);
+        if (node == null) {
+            node = new Node<>(key);
+            nodes.put(key, node);
+        } else {
+            unlink(node);
+        }
+
+        node.deadlineTick = Math.ceilDiv(deadline, tickDuration);
+        place(node);
+    }
+
+    /**
+     * Cancel the pending deadline for a key
+     *
+     * @param key The key to cancel
+     * @return True if the key had a pending deadline, false otherwise
+     */
+    public boolean cancel(K key) {
+        Node<K> node = nodes.remove(key);
+        if (node == null) {
+            return false;
+        }
+
+        unlink(node);
+        return true;
+    }
+
+    /**
+     * Check if a key has a pending deadline
+     *
+     * @param key The key to check
+     * @return True if the key is scheduled, false otherwise
+     */
+    public boolean contains(K key) {
+        return nodes.containsKey(key);
+    }
+
+    /**
+     * Get the number of pending keys
+     *
+     * @return The number of scheduled keys
+     */
+    public int size() {
+        return nodes.size();
+    }
+
+    /**
+     * Remove every pending key without firing them
+     */
+    public void clear() {
+        for (Node<K>[] level : slots) {
+            Arrays.fill(level, null);
+        }
+        nodes.clear();
+    }
+
+    /**
+     * Advance the wheel to the given time, firing every key whose deadline has passed.
+     * The callback may safely schedule or cancel keys.
+     *
+     * @param now The current time
+     * @param expired Called once for each expired key, in tick order
+     */
+    public void advance(long now, Consumer<K> expired) {
+        long targetTick = Math.floorDiv(now, tickDuration);
+
+        while (currentTick < targetTick) {
+            currentTick++;
+            cascade();
+
+            int slot = (int) (currentTick & SLOT_MASK);
+            Node<K> node;
+            while ((node = slots[0][slot]) != null) {
+                unlink(node);
+
+                if (node.deadlineTick > currentTick) {
+                    place(node);
+                    continue;
+                }
+
+                nodes.remove(node.key);
+                expired.accept(node.key);
+            }
+        }
+    }
+
+    /**
+     * Move the entries of the higher level slots that have just come into range down the hierarchy
+     */
+    private void cascade() {
+        for (int level = 1; level < LEVELS; level++) {
+            int shift = SLOT_BITS * level;
+            if ((currentTick & ((1L << shift) - 1)) != 0) {
+                return;
+            }
+
+            int slot = (int) ((currentTick >> shift) & SLOT_MASK);
+            Node<K> node;
+            while ((node = slots[level][slot]) != null) {
+                unlink(node);
+                place(node);
+            }
+        }
+    }
+
+    private void place(Node<K> node) {
+        long delta = node.deadlineTick - currentTick;
+        int level;
+        int slot;
+
+        if (delta <= 0) {
+            // Already due - fire on the next tick
+            level = 0;
+            slot = (int) ((currentTick + 1) & SLOT_MASK);
+        } else {
+            long effectiveTick = node.deadlineTick;
+            if (delta > MAX_DELTA) {
+                // Park far-future entries at the edge of the top level, they are re-placed when cascaded
+                effectiveTick = currentTick + MAX_DELTA;
+                delta = MAX_DELTA;
+            }
+
+            level = 0;
+            while (level < LEVELS - 1 && (delta >> (SLOT_BITS * (level + 1))) != 0) {
+                level++;
+            }
+            slot = (int) ((effectiveTick >> (SLOT_BITS * level)) & SLOT_MASK);
+        }
+
+        Node<K> head = slots[level][slot];
+        node.level = level;
+        node.slot = slot;
+        node.prev = null;
+        node.next = head;
+        if (head != null) {
+            head.prev = node;
+        }
+        slots[level][slot] = node;
+    }
+
+    private void unlink(Node<K> node) {
+        if (node.level < 0) {
+            return;
+        }
+
+        if (node.prev != null) {
+            node.prev.next = node.next;
+        } else {
+            slots[node.level][node.slot] = node.next;
+        }
+        if (node.next != null) {
+            node.next.prev = node.prev;
+        }
+
+        node.prev = null;
+        node.next = null;
+        node.level = -1;
+    }
+
+    private static final class Node<K> {
+        private final K key;
+        private long deadlineTick;
+        private int level = -1;
+        private int slot;
+        private Node<K> prev;
+        private Node<K> next;
+
+        private Node(K key) {
+            this.key = key;
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.jellypudding.battleLock.simulation;
+
+import org.bukkit.event.Cancellable;
+import org.bukkit.event.Event;
+import org.bukkit.event.EventException;
+import org.bukkit.event.HandlerList;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.RegisteredListener;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Times every event handler a plugin registered.
+ * <p>
+ * Each of the plugin's registered listeners is swapped for a wrapper that records the latency and the
+ * bytes allocated by the calling thread, per handler (listener class, event and priority). Events
+ * called by the server mock, by the plugin itself and by the simulation all go through the wrappers.
+ * Times are inclusive: a handler calling another event is charged for that event's handlers too.
+ */
+final class HandlerProfiler {
+
+    private final Map<String, Recorder> recorders;
+    private final LongAdder failures;
+    private final com.sun.management.ThreadMXBean threads;
+
+    HandlerProfiler() {
+        this.recorders = new ConcurrentHashMap<>();
+        this.failures = new LongAdder();
+        this.threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        threads.setThreadAllocatedMemoryEnabled(true);
+    }
+
+    /**
+     * Wrap every listener the plugin has registered so far
+     *
+     * @param plugin The plugin
+     * @return The number of handlers wrapped
+     */
+    int attach(Plugin plugin) {
+        int wrapped = 0;
+        for (HandlerList handlers : HandlerList.getHandlerLists()) {
+            for (RegisteredListener listener : handlers.getRegisteredListeners()) {
+                if (listener.getPlugin() == plugin && !(listener instanceof TimedListener)) {
+                    handlers.unregister(listener);
+                    handlers.register(new TimedListener(listener));
+                    wrapped++;
+                }
+            }
+        }
+        return wrapped;
+    }
+
+    /**
+     * Time a piece of work that is not an event handler, such as a server tick
+     *
+     * @param name The name to report it under
+     * @param work The work
+     */
+    void time(String name, Runnable work) {
+        long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        work.run();
+        long elapsed = System.nanoTime() - start;
+        recorder(name).record(elapsed, threads.getCurrentThreadAllocatedBytes() - allocatedBefore);
+    }
+
+    /**
+     * Get the number of handler calls that threw
+     *
+     * @return The number of failed calls
+     */
+    long failures() {
+        return failures.sum();
+    }
+
+    /**
+     * Get the number of times a handler or piece of work was recorded
+     *
+     * @param name The reported name
+     * @return The number of calls
+     */
+    int count(String name) {
+        Recorder recorder = recorders.get(name);
+        return recorder == null ? 0 : recorder.count();
+    }
+
+    /**
+     * Print latency percentiles and allocation per handler, the most expensive first
+     *
+     * @param out Where to print
+     * @param wallNanos The wall-clock length of the run, for the allocation rate
+     */
+    void report(PrintStream out, long wallNanos) {
+        List<Map.Entry<String, Recorder>> entries = new ArrayList<>(recorders.entrySet());
+        entries.sort(Comparator.comparingLong((Map.Entry<String, Recorder> entry) -> entry.getValue().totalNanos()).reversed());
+
+        int width = 7;
+        for (Map.Entry<String, Recorder> entry : entries) {
+            width = Math.max(width, entry.getKey().length());
+        }
+
+        String header = "%-" + width + "s %9s %9s %9s %9s %9s %10s %10s %10s%n";
+        out.printf(header, "handler", "count", "p50 ns", "p90 ns", "p99 ns", "p99.9 ns", "max ns", "bytes/op", "MB/s");
+        for (Map.Entry<String, Recorder> entry : entries) {
+            entry.getValue().print(out, "%-" + width + "s", entry.getKey(), wallNanos);
+        }
+        out.printf("%nhandler failures=%d%n", failures());
+    }
+
+    private Recorder recorder(String name) {
+        return recorders.computeIfAbsent(name, key -> new Recorder());
+    }
+
+    /**
+     * Stands in for a registered listener and times every call passed on to it
+     */
+    private final class TimedListener extends RegisteredListener {
+
+        private final RegisteredListener delegate;
+
+        private TimedListener(RegisteredListener delegate) {
+            super(delegate.getListener(), (listener, event) -> { }, delegate.getPriority(), delegate.getPlugin(), delegate.isIgnoringCancelled());
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void callEvent(Event event) throws EventException {
+            // Skipped calls are not handler work
+            if (event instanceof Cancellable cancellable && cancellable.isCancelled() && isIgnoringCancelled()) {
+                return;
+            }
+
+            long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+            long start = System.nanoTime();
+            try {
+                delegate.callEvent(event);
+            } catch (EventException | RuntimeException e) {
+                failures.increment();
+                throw e;
+            } finally {
+                long elapsed = System.nanoTime() - start;
+                String name = getListener().getClass().getSimpleName() + " " + event.getEventName() + " " + getPriority();
+                recorder(name).record(elapsed, threads.getCurrentThreadAllocatedBytes() - allocatedBefore);
+            }
+        }
+    }
+
+    /**
+     * Latencies and allocated bytes of one handler. Handlers may run on async threads, so it is synchronized.
+     */
+    private static final class Recorder {
+
+        private long[] latencies = new long[1024];
+        private int count;
+        private long totalNanos;
+        private long allocated;
+
+        private synchronized void record(long nanos, long bytes) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = nanos;
+            totalNanos += nanos;
+            allocated += bytes;
+        }
+
+        private synchronized int count() {
+            return count;
+        }
+
+        private synchronized long totalNanos() {
+            return totalNanos;
+        }
+
+        private synchronized void print(PrintStream out, String nameFormat, String name, long wallNanos) {
+            long[] sorted = Arrays.copyOf(latencies, count);
+            Arrays.sort(sorted);
+            double megabytesPerSecond = allocated / 1_000_000.0 / (wallNanos / 1_000_000_000.0);
+            out.printf(nameFormat + " %9d %9d %9d %9d %9d %9d %10d %10.2f%n", name, count,
+                    percentile(sorted, 0.50), percentile(sorted, 0.90), percentile(sorted, 0.99),
+                    percentile(sorted, 0.999), sorted[count - 1], allocated / count, megabytesPerSecond);
+        }
+
+        private static long percentile(long[] sorted, double percentile) {
+            return sorted[Math.min(sorted.length - 1, (int) Math.ceil(percentile * sorted.length) - 1)];
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.jellypudding.battleLock.simulation;
+
+import com.jellypudding.battleLock.BattleLock;
+import com.jellypudding.battleLock.api.CombatLogNpcSnapshot;
+import com.jellypudding.battleLock.api.CombatStateService;
+import com.jellypudding.battleLock.events.CombatLogNpcKillEvent;
+import com.jellypudding.battleLock.events.CombatLogNpcSpawnEvent;
+import com.jellypudding.battleLock.events.CombatLogPunishmentEvent;
+import org.bukkit.Location;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.LivingEntity;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerCommandPreprocessEvent;
+import org.bukkit.plugin.Plugin;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockbukkit.mockbukkit.MockBukkit;
+import org.mockbukkit.mockbukkit.ServerMock;
+import org.mockbukkit.mockbukkit.entity.PlayerMock;
+import org.mockbukkit.mockbukkit.world.WorldMock;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * End-to-end PvP load simulation on a mock server.
+ * <p>
+ * Loads the plugin into MockBukkit and has a server full of players fight, move, run commands, log
+ * out mid-combat, kill combat log NPCs and rejoin. Every event goes through the plugin's registered
+ * listeners, so combat logging spawns real NPCs, kills write real punishment records and rejoining
+ * players are punished. Each handler is timed with {@link HandlerProfiler}; the report lists latency
+ * percentiles and allocation per handler and per server tick.
+ * <p>
+ * Deadlines use the wall clock while ticks run as fast as they can, so the tag and NPC durations are
+ * shortened to let them run out during the simulation.
+ * <p>
+ * Runs with {@code ./gradlew test}. The size is set with the system properties
+ * battlelock.simulation.players, battlelock.simulation.ticks and battlelock.simulation.seed.
+ */
+class LoadSimulationTest {
+
+    private static final String[] COMMANDS = {
+            "/msg Steve gg", "/home", "/spawn", "/r ok", "/tpa Alex", "/me flees", "/warp pvp", "/helpop help"
+    };
+
+    private ServerMock server;
+    private BattleLock plugin;
+    private WorldMock world;
+    private HandlerProfiler profiler;
+    private Outcomes outcomes;
+
+    @BeforeEach
+    void setUp() {
+        server = MockBukkit.mock();
+        world = server.addSimpleWorld("world");
+        plugin = MockBukkit.load(BattleLock.class);
+
+        plugin.getConfig().set("combat-tag-duration", 1);
+        plugin.getConfig().set("combat-log-despawn-time", 2);
+        plugin.getConfig().set("npc-body", "villager");
+        plugin.getConfig().set("allowed-commands", List.of("tell", "msg", "minecraft:msg", "w", "r", "reply", "me", "helpop"));
+        plugin.saveConfig();
+        List<String> problems = new ArrayList<>();
+        plugin.reloadSettings(problems);
+        assertEquals(List.of(), problems);
+
+        outcomes = new Outcomes();
+        Plugin observer = MockBukkit.createMockPlugin();
+        server.getPluginManager().registerEvents(outcomes, observer);
+
+        profiler = new HandlerProfiler();
+        assertTrue(profiler.attach(plugin) > 0, "BattleLock registered no listeners");
+    }
+
+    @AfterEach
+    void tearDown() {
+        MockBukkit.unmock();
+    }
+
+    @Test
+    void simulatePvpLoad() throws IOException {
+        int playerCount = Integer.getInteger("battlelock.simulation.players", 200);
+        int ticks = Integer.getInteger("battlelock.simulation.ticks", 20 * 60 * 2);
+        long seed = Long.getLong("battlelock.simulation.seed", 1L);
+
+        Random random = new Random(seed);
+        List<PlayerMock> players = new ArrayList<>(playerCount);
+        for (int i = 0; i < playerCount; i++) {
+            PlayerMock player = server.addPlayer("Player" + i);
+            player.teleport(randomLocation(random));
+            players.add(player);
+        }
+
+        long started = System.nanoTime();
+        for (int tick = 0; tick < ticks; tick++) {
+            for (PlayerMock player : players) {
+                if (!player.isOnline()) {
+                    if (random.nextInt(200) == 0) {
+                        player.reconnect();
+                    }
+                    continue;
+                }
+
+                int roll = random.nextInt(1000);
+                if (roll < 60) {
+                    PlayerMock opponent = players.get(random.nextInt(players.size()));
+                    if (opponent != player && opponent.isOnline()) {
+                        attack(player, opponent);
+                    }
+                } else if (roll < 75) {
+                    server.getPluginManager().callEvent(new PlayerCommandPreprocessEvent(player, COMMANDS[random.nextInt(COMMANDS.length)]));
+                } else if (roll < 175) {
+                    player.simulatePlayerMove(randomLocation(random));
+                } else if (roll < 178) {
+                    player.disconnect();
+                }
+            }
+
+            // Someone finds and kills a combat logger's NPC
+            if (random.nextInt(4) == 0) {
+                killAnNpc(players.get(random.nextInt(players.size())));
+            }
+
+            profiler.time("server tick", () -> server.getScheduler().performOneTick());
+        }
+        long wallNanos = System.nanoTime() - started;
+
+        report(playerCount, ticks, seed, wallNanos);
+
+        assertEquals(0L, profiler.failures(), "event handlers threw during the simulation");
+        assertTrue(outcomes.spawned > 0, "no player combat logged during the simulation");
+    }
+
+    private void attack(PlayerMock attacker, PlayerMock victim) {
+        victim.damage(0.5, attacker);
+        if (victim.getHealth() < 10.0) {
+            victim.setHealth(20.0);
+        }
+    }
+
+    private void killAnNpc(PlayerMock killer) {
+        if (!killer.isOnline()) {
+            return;
+        }
+
+        CombatStateService service = server.getServicesManager().load(CombatStateService.class);
+        for (CombatLogNpcSnapshot npc : service.getNpcs()) {
+            Entity entity = npc.spawned() ? server.getEntity(npc.entityId()) : null;
+            if (entity instanceof LivingEntity living && !living.isDead()) {
+                living.damage(1000.0, killer);
+                return;
+            }
+        }
+    }
+
+    private Location randomLocation(Random random) {
+        return new Location(world, random.nextInt(256) - 128 + 0.5, 64.0, random.nextInt(256) - 128 + 0.5);
+    }
+
+    private void report(int playerCount, int ticks, long seed, long wallNanos) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream(buffer, true, StandardCharsets.UTF_8);
+        out.printf("BattleLock load simulation: %d players, %d ticks, seed %d, %.1f s wall clock%n",
+                playerCount, ticks, seed, wallNanos / 1_000_000_000.0);
+        out.printf("combat log NPCs spawned=%d, NPCs killed=%d, punishments applied=%d%n%n",
+                outcomes.spawned, outcomes.killed, outcomes.punished);
+        profiler.report(out, wallNanos);
+
+        String report = buffer.toString(StandardCharsets.UTF_8);
+        System.out.print(report);
+
+        String reportFile = System.getProperty("battlelock.simulation.report");
+        if (reportFile != null) {
+            Path path = Path.of(reportFile);
+            Files.createDirectories(path.getParent());
+            Files.writeString(path, report);
+        }
+    }
+
+    /**
+     * Counts what the plugin reported doing through its own events
+     */
+    public static final class Outcomes implements Listener {
+
+        private int spawned;
+        private int killed;
+        private int punished;
+
+        @EventHandler
+        public void onSpawn(CombatLogNpcSpawnEvent event) {
+            spawned++;
+        }
+
+        @EventHandler
+        public void onKill(CombatLogNpcKillEvent event) {
+            killed++;
+        }
+
+        @EventHandler
+        public void onPunishment(CombatLogPunishmentEvent event) {
+            punished++;
+        }
+    }
+}